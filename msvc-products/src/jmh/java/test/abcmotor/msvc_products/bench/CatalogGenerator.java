@@ -0,0 +1,122 @@
+package test.abcmotor.msvc_products.bench;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+
+// Builds large catalogs by repeating the rows of the ProductsList fixtures, with a row
+// number appended to every name so that no row is dropped as a duplicate
+public final class CatalogGenerator {
+
+    private CatalogGenerator() {
+    }
+
+    public static Path generateCsv(Path seed, Path target, int rows) throws IOException {
+        List<String[]> seedRows;
+        try (CSVReader reader = new CSVReader(new FileReader(seed.toFile(), StandardCharsets.UTF_8))) {
+            seedRows = reader.readAll();
+        } catch (Exception e) {
+            throw new IOException("Cannot read seed catalog " + seed, e);
+        }
+        String[] header = seedRows.remove(0);
+        int nameIndex = indexOf(header, "name");
+
+        try (CSVWriter writer = new CSVWriter(new PrintWriter(target.toFile(), StandardCharsets.UTF_8))) {
+            writer.writeNext(header, false);
+            for (int i = 0; i < rows; i++) {
+                String[] line = seedRows.get(i % seedRows.size()).clone();
+                line[nameIndex] = line[nameIndex] + "-" + i;
+                writer.writeNext(line, false);
+            }
+        }
+        return target;
+    }
+
+    public static Path generateXlsx(Path seed, Path target, int rows) throws IOException {
+        List<Object[]> seedRows = new ArrayList<>();
+        try (InputStream in = new FileInputStream(seed.toFile()); Workbook workbook = new XSSFWorkbook(in)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            int columns = sheet.getRow(0).getLastCellNum();
+            for (Row row : sheet) {
+                Object[] values = new Object[columns];
+                for (int c = 0; c < columns; c++) {
+                    Cell cell = row.getCell(c);
+                    if (cell == null) {
+                        continue;
+                    }
+                    if (cell.getCellType() == CellType.NUMERIC) {
+                        values[c] = cell.getNumericCellValue();
+                    } else if (cell.getCellType() == CellType.BOOLEAN) {
+                        values[c] = cell.getBooleanCellValue();
+                    } else {
+                        values[c] = cell.toString();
+                    }
+                }
+                seedRows.add(values);
+            }
+        }
+        Object[] header = seedRows.remove(0);
+        int nameIndex = indexOf(header, "name");
+
+        // SXSSF keeps a small window of rows in memory, a 1M row sheet can be written anywhere
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200); OutputStream out = new FileOutputStream(target.toFile())) {
+            Sheet sheet = workbook.createSheet("Products");
+            writeRow(sheet.createRow(0), header);
+            for (int i = 0; i < rows; i++) {
+                Object[] values = seedRows.get(i % seedRows.size()).clone();
+                values[nameIndex] = values[nameIndex] + "-" + i;
+                writeRow(sheet.createRow(i + 1), values);
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+        return target;
+    }
+
+    public static Path tempDirectory() throws IOException {
+        return Files.createTempDirectory("products-bench-");
+    }
+
+    private static void writeRow(Row row, Object[] values) {
+        for (int c = 0; c < values.length; c++) {
+            Object value = values[c];
+            if (value instanceof Double number) {
+                row.createCell(c).setCellValue(number);
+            } else if (value instanceof Boolean bool) {
+                row.createCell(c).setCellValue(bool);
+            } else if (value != null) {
+                row.createCell(c).setCellValue(value.toString());
+            }
+        }
+    }
+
+    private static int indexOf(Object[] header, String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] != null && column.equalsIgnoreCase(header[i].toString().trim())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Seed catalog has no " + column + " column");
+    }
+
+}
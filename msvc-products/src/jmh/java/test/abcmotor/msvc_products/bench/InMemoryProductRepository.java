@@ -0,0 +1,76 @@
+package test.abcmotor.msvc_products.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.BsonObjectId;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+import test.abcmotor.msvc_products.repository.ProductRepository;
+
+// Fake repository for the import benchmarks: behaves like an empty collection that accepts
+// every write and only counts it, so the numbers measure the import pipeline and not Mongo.
+// Built as a proxy because only the import methods of the large repository interface are used.
+public class InMemoryProductRepository implements InvocationHandler {
+
+    private final AtomicLong written = new AtomicLong();
+
+    public static InMemoryProductRepository create() {
+        return new InMemoryProductRepository();
+    }
+
+    public ProductRepository proxy() {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[] { ProductRepository.class }, this);
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public void clear() {
+        written.set(0);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "insertBatch": {
+                int size = ((List<?>) args[0]).size();
+                written.addAndGet(size);
+                return size;
+            }
+            case "findExistingNames":
+                return new HashSet<String>();
+            case "findFingerprintsByName":
+                return new HashMap<String, Long>(((Collection<?>) args[0]).size() * 2);
+            case "upsertBatchByName": {
+                List<?> products = (List<?>) args[0];
+                written.addAndGet(products.size());
+                List<BulkWriteUpsert> upserts = new ArrayList<>(products.size());
+                for (int i = 0; i < products.size(); i++) {
+                    upserts.add(new BulkWriteUpsert(i, new BsonObjectId()));
+                }
+                return BulkWriteResult.acknowledged(0, 0, 0, 0, upserts, List.of());
+            }
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryProductRepository";
+            default:
+                throw new UnsupportedOperationException(method.getName() + " is not used by the import benchmarks");
+        }
+    }
+
+}
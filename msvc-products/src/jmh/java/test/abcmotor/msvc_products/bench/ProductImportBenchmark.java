@@ -0,0 +1,101 @@
+package test.abcmotor.msvc_products.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import test.abcmotor.msvc_products.config.ImportExecutorConfig;
+import test.abcmotor.msvc_products.service.ImportMode;
+import test.abcmotor.msvc_products.service.ImportSummary;
+import test.abcmotor.msvc_products.service.ProductServiceImpl;
+
+// Imports generated catalogs through ProductServiceImpl against an in-memory repository.
+// Run from msvc-products with: mvn -Pbench test-compile exec:exec
+// Useful arguments: -Dbench.args="ProductImportBenchmark -p rows=100000 -p format=csv -prof gc"
+// The seed fixtures are read from ../ProductsList.csv and ../ProductsList.xlsx, override the
+// directory with -Dbench.seed.dir=<dir> inside bench.args (-jvmArgsAppend) if needed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx1g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class ProductImportBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "csv", "xlsx" })
+    public String format;
+
+    @Param({ "insert" })
+    public String mode;
+
+    private Path directory;
+    private Path catalog;
+    private ExecutorService workers;
+    private InMemoryProductRepository repository;
+    private ProductServiceImpl productService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path seedDirectory = Path.of(System.getProperty("bench.seed.dir", ".."));
+        directory = CatalogGenerator.tempDirectory();
+        if (format.equals("csv")) {
+            catalog = CatalogGenerator.generateCsv(seedDirectory.resolve("ProductsList.csv"),
+                    directory.resolve("catalog.csv"), rows);
+        } else {
+            catalog = CatalogGenerator.generateXlsx(seedDirectory.resolve("ProductsList.xlsx"),
+                    directory.resolve("catalog.xlsx"), rows);
+        }
+
+        workers = new ImportExecutorConfig().productImportWorkers(0);
+        repository = InMemoryProductRepository.create();
+        productService = new ProductServiceImpl(repository.proxy(), new StandardEnvironment(), new ObjectMapper(), workers,
+                1000, 0, 2000, 20, 200, 500, 100);
+    }
+
+    @Benchmark
+    public long importCatalog() throws IOException {
+        repository.clear();
+        ImportSummary summary = new ImportSummary(ImportMode.fromValue(mode));
+        try (InputStream inputStream = Files.newInputStream(catalog)) {
+            productService.importProductsFromFile(catalog.getFileName().toString(), inputStream, summary);
+        }
+        if (summary.getInserted() != rows) {
+            throw new IllegalStateException("Expected " + rows + " imported rows but got " + summary.getInserted());
+        }
+        return repository.getWritten();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workers.shutdownNow();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package test.abcmotor.msvc_products.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Closed-loop load test of the servlet stack (MVC on Tomcat) and the reactive stack (WebFlux on
+// Netty, see ReactiveWebServerConfig) of msvc-products.
+// Start the service twice against the same database, once as usual and once with
+// SPRING_PROFILES_ACTIVE=reactive on another port, then run from msvc-products:
+// mvn -Pbench test-compile exec:exec -Dbench.main=test.abcmotor.msvc_products.bench.StackLoadComparison
+//     -Dbench.args="servlet=http://localhost:8001 reactive=http://localhost:8002"
+// Optional arguments: path=/api/products concurrency=16,64,256,1024 seconds=10. For every
+// concurrency level it prints throughput, latency percentiles and the peak number of live
+// server threads, sampled from /actuator/metrics/jvm.threads.live while the load runs.
+public class StackLoadComparison {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("path", "/api/products");
+        options.put("concurrency", "16,64,256,1024");
+        options.put("seconds", "10");
+        Map<String, String> stacks = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            if (pair[0].equals("servlet") || pair[0].equals("reactive")) {
+                stacks.put(pair[0], pair[1]);
+            } else {
+                options.put(pair[0], pair[1]);
+            }
+        }
+        if (stacks.isEmpty()) {
+            throw new IllegalArgumentException("Pass servlet=<base url> and/or reactive=<base url>");
+        }
+        int[] levels = Arrays.stream(options.get("concurrency").split(",")).mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.get("seconds")));
+
+        System.out.printf("%-9s %11s %10s %9s %9s %8s %15s%n", "stack", "concurrency", "req/s", "p50 ms",
+                "p99 ms", "errors", "server threads");
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .build();
+            for (Map.Entry<String, String> stack : stacks.entrySet()) {
+                URI target = URI.create(stack.getValue() + options.get("path"));
+                URI threads = URI.create(stack.getValue() + "/actuator/metrics/jvm.threads.live");
+                // Warm up connections and JIT before measuring
+                run(http, clients, target, threads, levels[0], Duration.ofSeconds(3));
+                for (int level : levels) {
+                    Result result = run(http, clients, target, threads, level, duration);
+                    System.out.printf("%-9s %11d %10.0f %9.1f %9.1f %8d %15d%n", stack.getKey(), level,
+                            result.throughput, result.p50, result.p99, result.errors, result.peakThreads);
+                }
+            }
+        }
+    }
+
+    private static Result run(HttpClient http, ExecutorService clients, URI target, URI threads, int concurrency,
+            Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(30)).GET().build();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong peakThreads = new AtomicLong();
+
+        Future<?> sampler = clients.submit(() -> {
+            while (System.nanoTime() < deadline) {
+                peakThreads.accumulateAndGet(liveThreads(http, threads), Math::max);
+                try {
+                    Thread.sleep(250);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        List<Future<long[]>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> worker : workers) {
+            long[] latencies = worker.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        sampler.get();
+        Arrays.sort(all);
+
+        Result result = new Result();
+        result.throughput = all.length / (duration.toNanos() / 1e9);
+        result.p50 = percentile(all, 0.50);
+        result.p99 = percentile(all, 0.99);
+        result.errors = errors.get();
+        result.peakThreads = peakThreads.get();
+        return result;
+    }
+
+    private static long liveThreads(HttpClient http, URI threads) {
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(threads).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode measurements = MAPPER.readTree(response.body()).path("measurements");
+            return measurements.isArray() && measurements.size() > 0 ? measurements.get(0).path("value").asLong() : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Result {
+        double throughput;
+        double p50;
+        double p99;
+        int errors;
+        long peakThreads;
+    }
+
+}
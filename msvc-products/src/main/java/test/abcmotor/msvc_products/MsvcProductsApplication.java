@@ -2,8 +2,10 @@ package test.abcmotor.msvc_products;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
+@EnableCaching
 public class MsvcProductsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,33 @@
+package test.abcmotor.msvc_products.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("!reactive")
+public class ImportExecutorConfig {
+
+    // Parsing is CPU bound, so the workers are platform threads sized to the cores
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService productImportWorkers(@Value("${products.import.workers:0}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "product-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(resolveWorkers(workers), threadFactory);
+    }
+
+    public static int resolveWorkers(int workers) {
+        return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+}
@@ -0,0 +1,129 @@
+package test.abcmotor.msvc_products.config;
+
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+@Component
+@Profile("!reactive")
+public class ProductCollectionInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCollectionInitializer.class);
+
+    private static final int TAG_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    public ProductCollectionInitializer(MongoTemplate mongoTemplate,
+            @Value("${products.collection.initialize:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        // Index builds can take a while on Atlas, so they must not hold back startup
+        Thread thread = new Thread(this::initialize, "products-collection-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void initialize() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+            // Keyset pages sorted by name or price seek on (field, _id), pages by id use _id_.
+            // name_id_idx also serves the per-batch duplicate lookups of the imports, which made
+            // the former single-field name_idx redundant
+            indexOps.createIndex(new Index().on("name", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("name_id_idx"));
+            indexOps.createIndex(new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("price_id_idx"));
+            if (indexOps.getIndexInfo().stream().anyMatch(index -> index.getName().equals("name_idx"))) {
+                indexOps.dropIndex("name_idx");
+            }
+
+            // Filters of the search endpoint, each paired with _id for the keyset pagination
+            indexOps.createIndex(new Index().on("platformTags", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("platformTags_id_idx"));
+            indexOps.createIndex(new Index().on("genreTags", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("genreTags_id_idx"));
+            indexOps.createIndex(new Index().on("developer", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("developer_id_idx"));
+            indexOps.createIndex(new Index().on("publisher", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                    .named("publisher_id_idx"));
+            indexOps.createIndex(TextIndexDefinition.builder().onField("name").onField("description")
+                    .named("name_description_text").build());
+
+            // Products stored before optimistic locking start at version 0
+            long versioned = mongoTemplate.updateMulti(new Query(Criteria.where("version").exists(false)),
+                    new Update().set("version", 0L), Product.class).getModifiedCount();
+            if (versioned > 0) {
+                log.info("Initialized the version of {} products", versioned);
+            }
+
+            long tagged = migrateTags();
+            if (tagged > 0) {
+                log.info("Derived platform and genre tags for {} products", tagged);
+            }
+        } catch (Exception e) {
+            log.warn("Could not initialize the products collection: {}", e.getMessage());
+        }
+    }
+
+    // Products stored before the tag arrays existed get them derived from platforms and genres.
+    // The tags are not part of the JSON representation, so the version is left as is
+    private long migrateTags() {
+        String collection = mongoTemplate.getCollectionName(Product.class);
+        Query untagged = new Query(new Criteria().orOperator(Criteria.where("platformTags").exists(false),
+                Criteria.where("genreTags").exists(false))).cursorBatchSize(TAG_BATCH_SIZE);
+        untagged.fields().include("platforms", "genres");
+
+        long tagged = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(untagged, Document.class, collection)) {
+            BulkOperations bulkOps = null;
+            int pending = 0;
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                if (bulkOps == null) {
+                    bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED, collection);
+                }
+                Update tags = new Update()
+                        .set("platformTags", Product.tagsOf(document.getString("platforms")))
+                        .set("genreTags", Product.tagsOf(document.getString("genres")));
+                bulkOps.updateOne(new Query(Criteria.where("_id").is(document.get("_id"))), tags);
+                if (++pending == TAG_BATCH_SIZE) {
+                    tagged += bulkOps.execute().getModifiedCount();
+                    bulkOps = null;
+                    pending = 0;
+                }
+            }
+            if (bulkOps != null) {
+                tagged += bulkOps.execute().getModifiedCount();
+            }
+        }
+        return tagged;
+    }
+
+}
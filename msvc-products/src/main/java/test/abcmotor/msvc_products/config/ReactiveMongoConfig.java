@@ -0,0 +1,17 @@
+package test.abcmotor.msvc_products.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+import test.abcmotor.msvc_products.repository.ReactiveProductRepository;
+
+// The reactive repositories only exist in the reactive profile. The default profile excludes
+// the reactive MongoDB auto-configuration (application.properties) and the reactive profile
+// excludes the blocking one (application-reactive.properties), so each mode runs one driver
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveProductRepository.class)
+public class ReactiveMongoConfig {
+
+}
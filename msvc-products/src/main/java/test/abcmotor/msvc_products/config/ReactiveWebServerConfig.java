@@ -0,0 +1,20 @@
+package test.abcmotor.msvc_products.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// spring-boot-starter-web keeps Tomcat on the classpath, and the reactive auto-configuration
+// prefers it over Netty when both are present. Declaring the factory makes the reactive profile
+// run WebFlux on Netty's event loops instead of a Tomcat thread pool
+@Configuration
+@Profile("reactive")
+public class ReactiveWebServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+}
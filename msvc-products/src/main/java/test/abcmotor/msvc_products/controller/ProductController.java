@@ -1,34 +1,72 @@
 package test.abcmotor.msvc_products.controller;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import test.abcmotor.msvc_products.models.dto.ProductPage;
+import test.abcmotor.msvc_products.models.dto.ProductSearch;
+import test.abcmotor.msvc_products.models.dto.StockLine;
 import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.service.ImportJob;
+import test.abcmotor.msvc_products.service.ImportJobService;
+import test.abcmotor.msvc_products.service.ImportMode;
+import test.abcmotor.msvc_products.service.InsufficientStockException;
+import test.abcmotor.msvc_products.service.ProductETag;
 import test.abcmotor.msvc_products.service.ProductService;
+import test.abcmotor.msvc_products.service.ProductStockService;
+import test.abcmotor.msvc_products.service.ProductView;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/products")
 public class ProductController {
 
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private ProductStockService productStockService;
+
     @PostMapping("/import")
-    public ResponseEntity<?> importProductsFromFile(@RequestParam("file") MultipartFile file) {
-        String result = productService.importProductsFromFile(file);
+    public ResponseEntity<?> importProductsFromFile(@RequestParam("file") MultipartFile file,
+            @RequestParam(value = "mode", defaultValue = "insert") String mode) {
+        ImportMode importMode;
+        try {
+            importMode = ImportMode.fromValue(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        String result = productService.importProductsFromFile(file, importMode);
         if (result.startsWith(
                 "CSV file mustn't contain header required")) {
             return ResponseEntity.badRequest().body(result);
@@ -37,29 +75,250 @@ public class ProductController {
         return ResponseEntity.ok(result);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.findAll());
+    @PostMapping("/import/jobs")
+    public ResponseEntity<?> submitImportJob(@RequestParam("file") MultipartFile file,
+            @RequestParam(value = "mode", defaultValue = "insert") String mode) {
+        try {
+            ImportJob job = importJobService.submit(file, ImportMode.fromValue(mode));
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Too many imports in progress, please try again later");
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body("An error occurred while storing the file: " + e.getMessage());
+        }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
-        return productService.findById(id)
+    @GetMapping("/import/jobs/{jobId}")
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String jobId) {
+        return importJobService.findById(jobId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping
+    public ResponseEntity<?> getAllProducts(@RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "view", required = false) String view, WebRequest request) {
+        List<String> projection;
+        try {
+            projection = ProductView.resolveFields(fields, view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (projection == null) {
+            List<Product> products = productService.findAll();
+            // The port of this instance is part of the body
+            String etag = ProductETag.of(products, products.isEmpty() ? "" : String.valueOf(products.get(0).getPort()));
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(etag).body(products);
+        }
+        return ResponseEntity.ok(productService.findAll(projection));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        // Written from the async executor while the Mongo cursor is iterated
+        StreamingResponseBody body = outputStream -> productService.exportCatalog(outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.json\"")
+                .body(body);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(@RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "view", required = false) String view, WebRequest request) {
+        return productPage(null, cursor, size, sort, direction, fields, view, request);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@ModelAttribute ProductSearch search,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "view", required = false) String view, WebRequest request) {
+        return productPage(search, cursor, size, sort, direction, fields, view, request);
+    }
+
+    private ResponseEntity<?> productPage(ProductSearch search, String cursor, Integer size, String sort,
+            String direction, String fields, String view, WebRequest request) {
+        try {
+            List<String> projection = ProductView.resolveFields(fields, view);
+            if (projection != null) {
+                ProductPage<Map<String, Object>> page = productService.findPage(search, cursor, size, sort,
+                        direction, projection);
+                return ResponseEntity.ok(page);
+            }
+            ProductPage<Product> page = productService.findPage(search, cursor, size, sort, direction);
+            String etag = ProductETag.of(page.getItems(), page.getNextCursor());
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(etag).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/stock/reserve")
+    public ResponseEntity<?> reserveStock(@PathVariable String id, @RequestParam("quantity") int quantity) {
+        try {
+            return productStockService.reserve(id, quantity)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/stock/release")
+    public ResponseEntity<?> releaseStock(@PathVariable String id, @RequestParam("quantity") int quantity) {
+        try {
+            return productStockService.release(id, quantity)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/stock/reserve")
+    public ResponseEntity<?> reserveStock(@RequestBody List<StockLine> lines) {
+        try {
+            return ResponseEntity.ok(productStockService.reserveAll(lines));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/stock/release")
+    public ResponseEntity<?> releaseStock(@RequestBody List<StockLine> lines) {
+        try {
+            return ResponseEntity.ok(productStockService.releaseAll(lines));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProductsByIds(@RequestParam("ids") List<String> ids) {
+        try {
+            return ResponseEntity.ok(productService.findByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> createProducts(@RequestBody List<Product> products) {
+        try {
+            return ResponseEntity.ok(productService.createAll(products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Unlike PUT /{id}, batch replacements don't take If-Match: the version is read-only in
+    // product bodies, so every item is written last-writer-wins
+    @PutMapping("/batch")
+    public ResponseEntity<?> updateProducts(@RequestBody List<Product> products) {
+        try {
+            return ResponseEntity.ok(productService.updateAll(products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<?> deleteProducts(@RequestParam("ids") List<String> ids) {
+        try {
+            return ResponseEntity.ok(productService.deleteAll(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getProductById(@PathVariable String id,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "view", required = false) String view, WebRequest request) {
+        List<String> projection;
+        try {
+            projection = ProductView.resolveFields(fields, view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (projection != null) {
+            return productService.findById(id, projection)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        Optional<Product> product = productService.findById(id);
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // Unchanged products are answered with 304 and no body
+        String etag = ProductETag.of(product.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(product.get());
+    }
+
     @PostMapping
-    public ResponseEntity<Product> createProduct(@RequestBody Product product) {
-        Product saved = productService.create(product);
-        return ResponseEntity.status(201).body(saved);
+    public ResponseEntity<?> createProduct(@RequestBody Product product) {
+        try {
+            Product saved = productService.create(product);
+            return ResponseEntity.status(201).eTag(ProductETag.of(saved)).body(saved);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable String id, @RequestBody Product updated) {
-        return productService.update(id, updated)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateProduct(@PathVariable String id, @RequestBody Product updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return productService.update(id, updated, ProductETag.parseVersion(ifMatch))
+                    .<ResponseEntity<?>>map(saved -> ResponseEntity.ok().eTag(ProductETag.of(saved)).body(saved))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            // If-Match did not match, or another update was saved in the meantime
+            HttpStatus status = ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+            return ResponseEntity.status(status).body("The product was modified by another request: " + e.getMessage());
+        }
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchProduct(@PathVariable String id, @RequestBody Map<String, Object> changes,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return productService.patch(id, changes, ProductETag.parseVersion(ifMatch))
+                    .<ResponseEntity<?>>map(saved -> ResponseEntity.ok().eTag(ProductETag.of(saved)).body(saved))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("The product was modified by another request: " + e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
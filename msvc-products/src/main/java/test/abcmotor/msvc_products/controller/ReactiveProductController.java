@@ -0,0 +1,133 @@
+package test.abcmotor.msvc_products.controller;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.service.InsufficientStockException;
+import test.abcmotor.msvc_products.service.ProductETag;
+import test.abcmotor.msvc_products.service.ProductView;
+import test.abcmotor.msvc_products.service.ReactiveProductService;
+
+// Non-blocking subset of ProductController. GET, POST, PUT and DELETE on /{id} (with fields,
+// view, ETags and If-Match) and the single-product stock endpoints answer like the servlet
+// ones. The full list has no fields, view or ETag and can be streamed as NDJSON, and the
+// export is NDJSON only. PATCH, multi-line stock, imports, pagination, search and batches
+// stay on the servlet stack
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/products")
+public class ReactiveProductController {
+
+    private final ReactiveProductService productService;
+
+    public ReactiveProductController(ReactiveProductService productService) {
+        this.productService = productService;
+    }
+
+    // Elements are written as they arrive from the cursor, as a JSON array or as NDJSON
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<Product> getAllProducts() {
+        return productService.findAll();
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> exportProducts() {
+        return productService.export();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getProductById(@PathVariable String id,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "view", required = false) String view, ServerWebExchange exchange) {
+        List<String> projection;
+        try {
+            projection = ProductView.resolveFields(fields, view);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+        if (projection != null) {
+            return productService.findById(id, projection)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .defaultIfEmpty(ResponseEntity.notFound().build());
+        }
+        return productService.findById(id)
+                .<ResponseEntity<?>>map(product -> {
+                    String etag = ProductETag.of(product);
+                    if (exchange.checkNotModified(etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(product);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> createProduct(@RequestBody Product product) {
+        return productService.create(product)
+                .<ResponseEntity<?>>map(saved -> ResponseEntity.status(201).eTag(ProductETag.of(saved)).body(saved))
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> updateProduct(@PathVariable String id, @RequestBody Product updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> productService.update(id, updated, ProductETag.parseVersion(ifMatch)))
+                .<ResponseEntity<?>>map(saved -> ResponseEntity.ok().eTag(ProductETag.of(saved)).body(saved))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(ResponseEntity
+                        .status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                        .body("The product was modified by another request: " + e.getMessage())));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteProduct(@PathVariable String id) {
+        return productService.delete(id)
+                .map(deleted -> deleted ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    @PostMapping("/{id}/stock/reserve")
+    public Mono<ResponseEntity<?>> reserveStock(@PathVariable String id, @RequestParam("quantity") int quantity) {
+        return productService.reserve(id, quantity)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())))
+                .onErrorResume(InsufficientStockException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage())));
+    }
+
+    @PostMapping("/{id}/stock/release")
+    public Mono<ResponseEntity<?>> releaseStock(@PathVariable String id, @RequestParam("quantity") int quantity) {
+        return productService.release(id, quantity)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+}
@@ -0,0 +1,57 @@
+package test.abcmotor.msvc_products.models.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+// Outcome of one item of a batch request, in the order of the request
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    private final int index;
+    private final String id;
+    private final String status;
+    private final String error;
+    private final Product product;
+
+    private BatchItemResult(int index, String id, String status, String error, Product product) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+        this.product = product;
+    }
+
+    public static BatchItemResult of(int index, String id, String status) {
+        return new BatchItemResult(index, id, status, null, null);
+    }
+
+    public static BatchItemResult found(int index, Product product) {
+        return new BatchItemResult(index, product.getId(), "found", null, product);
+    }
+
+    public static BatchItemResult failed(int index, String id, String error) {
+        return new BatchItemResult(index, id, "failed", error, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+}
@@ -0,0 +1,30 @@
+package test.abcmotor.msvc_products.models.dto;
+
+import java.util.List;
+
+public class ProductPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final int size;
+
+    public ProductPage(List<T> items, String nextCursor, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Opaque token for the next page, null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+}
@@ -0,0 +1,22 @@
+package test.abcmotor.msvc_products.models.dto;
+
+// Stock left after a reservation or release
+public class StockLevel {
+
+    private final String id;
+    private final Integer stock;
+
+    public StockLevel(String id, Integer stock) {
+        this.id = id;
+        this.stock = stock;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+}
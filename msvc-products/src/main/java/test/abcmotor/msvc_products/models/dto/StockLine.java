@@ -0,0 +1,33 @@
+package test.abcmotor.msvc_products.models.dto;
+
+// One line of a multi-product stock reservation
+public class StockLine {
+
+    private String id;
+    private int quantity;
+
+    public StockLine() {
+    }
+
+    public StockLine(String id, int quantity) {
+        this.id = id;
+        this.quantity = quantity;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+}
@@ -1,11 +1,18 @@
 package test.abcmotor.msvc_products.models.entities;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 @Document(collection = "products")
 public class Product {
     @Id
@@ -22,6 +29,21 @@ public class Product {
     private String publisher;
     private Date release_date;
 
+    // Normalized copies of platforms and genres, stored as arrays so they can be indexed
+    @JsonIgnore
+    private List<String> platformTags;
+    @JsonIgnore
+    private List<String> genreTags;
+
+    // Content hash maintained by the import, see ProductFingerprint
+    @JsonIgnore
+    private Long fingerprint;
+
+    // Optimistic locking, also the start of the ETag of the product
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @Transient
     private int port;
 
@@ -81,6 +103,7 @@ public class Product {
 
     public void setPlatforms(String platforms) {
         this.platforms = platforms;
+        this.platformTags = tagsOf(platforms);
     }
 
     public String getGenres() {
@@ -89,6 +112,30 @@ public class Product {
 
     public void setGenres(String genres) {
         this.genres = genres;
+        this.genreTags = tagsOf(genres);
+    }
+
+    public List<String> getPlatformTags() {
+        return platformTags;
+    }
+
+    public List<String> getGenreTags() {
+        return genreTags;
+    }
+
+    // "PS5, Xbox Series X" -> [ps5, xbox series x]
+    public static List<String> tagsOf(String value) {
+        List<String> tags = new ArrayList<>();
+        if (value == null) {
+            return tags;
+        }
+        for (String part : value.split(",")) {
+            String tag = part.trim().toLowerCase(Locale.ROOT);
+            if (!tag.isEmpty() && !tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
     }
 
     public double getDiscount() {
@@ -123,6 +170,22 @@ public class Product {
         this.release_date = release_date;
     }
 
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public int getPort() {
         return port;
     }
@@ -0,0 +1,8 @@
+package test.abcmotor.msvc_products.repository;
+
+import java.util.Map;
+
+// Result of an unordered bulk write: documents written or matched, and the error of each
+// failed operation by its index in the batch
+public record BatchWriteOutcome(int count, Map<Integer, String> errors) {
+}
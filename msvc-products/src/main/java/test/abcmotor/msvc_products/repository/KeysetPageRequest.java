@@ -0,0 +1,11 @@
+package test.abcmotor.msvc_products.repository;
+
+// Position of a keyset page: the sort key and _id of the last product of the previous page,
+// both null for the first page
+public record KeysetPageRequest(String sortField, boolean ascending, Object lastValue, String lastId, int limit) {
+
+    public boolean isFirstPage() {
+        return lastId == null;
+    }
+
+}
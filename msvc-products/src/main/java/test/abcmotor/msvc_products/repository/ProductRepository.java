@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import test.abcmotor.msvc_products.models.entities.Product;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
     // Custom query methods can be defined here if needed
 
     // Method to find product by name (to check for duplicates)
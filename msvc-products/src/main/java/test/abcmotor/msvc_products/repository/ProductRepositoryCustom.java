@@ -0,0 +1,68 @@
+package test.abcmotor.msvc_products.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public interface ProductRepositoryCustom {
+
+    // Inserts the batch with a single unordered bulk write and returns the number
+    // of documents that were actually written
+    int insertBatch(List<Product> products);
+
+    // Resolves which of the given names are already stored, using a single $in query
+    Set<String> findExistingNames(Collection<String> names);
+
+    // Stored fingerprint per name for the given names, null for products without one
+    Map<String, Long> findFingerprintsByName(Collection<String> names);
+
+    // Replaces the stored product with the same name, or inserts it, in a single unordered bulk write
+    BulkWriteResult upsertBatchByName(List<Product> products);
+
+    // Sets version 0 on a product stored before versioning was introduced, so it can be
+    // saved with optimistic locking
+    void initializeVersion(String id);
+
+    // Adds delta to the stock in one conditional findAndModify, a negative delta only applies
+    // while the stock covers it. Returns the id and new stock, or null when nothing was changed
+    Product adjustStock(String id, int delta);
+
+    // Batch endpoints, each one a single round-trip
+    BatchWriteOutcome insertAll(List<Product> products);
+
+    BatchWriteOutcome replaceAllById(List<Product> products);
+
+    Set<String> findExistingIds(Collection<String> ids);
+
+    Set<String> deleteAllById(Collection<String> ids);
+
+    // Applies the update and increments the version in one findAndModify, optionally only if
+    // the product is still at the expected version. Returns the updated product, or null when
+    // no product matched
+    Product updateAndGet(String id, Update update, Long expectedVersion);
+
+    // Products matching the filter (null for all) that come after the page position, seeking
+    // through the (sortField, _id) index instead of skipping the previous pages
+    List<Product> findPage(Query filter, KeysetPageRequest page);
+
+    // Projected reads return only the requested fields, as raw documents with "id" in place
+    // of "_id", so the fields left out are neither transferred nor serialized
+    List<Map<String, Object>> findProjected(Query filter, Collection<String> fields);
+
+    List<Map<String, Object>> findPageProjected(Query filter, KeysetPageRequest page, Collection<String> fields);
+
+
+    // Iterates the whole collection over a server-side cursor, fetching batchSize documents
+    // per round trip. The stream must be closed to release the cursor
+    Stream<Product> streamAll(int batchSize);
+
+}
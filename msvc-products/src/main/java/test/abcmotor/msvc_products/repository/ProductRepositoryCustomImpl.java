@@ -0,0 +1,316 @@
+package test.abcmotor.msvc_products.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ProductRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public int insertBatch(List<Product> products) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        // Bulk inserts bypass the version initialization done by save()
+        for (Product product : products) {
+            if (product.getVersion() == null) {
+                product.setVersion(0L);
+            }
+        }
+        try {
+            return mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class)
+                    .insert(products)
+                    .execute()
+                    .getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Unordered mode keeps writing after a failed document, report what was stored
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    @Override
+    public Product adjustStock(String id, int delta) {
+        return mongoTemplate.findAndModify(stockQuery(id, delta), stockUpdate(delta),
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+
+    // Shared with the reactive repository
+    static Query stockQuery(String id, int delta) {
+        Criteria criteria = Criteria.where("_id").is(toObjectId(id));
+        criteria = delta < 0 ? criteria.and("stock").gte(-delta) : criteria.and("stock").ne(null);
+        Query query = new Query(criteria);
+        query.fields().include("stock");
+        return query;
+    }
+
+    // The stock is part of the fingerprint and of the ETag
+    static Update stockUpdate(int delta) {
+        return new Update().inc("stock", delta).inc("version", 1).unset("fingerprint");
+    }
+
+    @Override
+    public BatchWriteOutcome insertAll(List<Product> products) {
+        for (Product product : products) {
+            product.setVersion(0L);
+        }
+        return execute(mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class).insert(products), true);
+    }
+
+    @Override
+    public BatchWriteOutcome replaceAllById(List<Product> products) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class);
+        for (Product product : products) {
+            bulkOps.updateOne(new Query(Criteria.where("_id").is(toObjectId(product.getId()))), replacementOf(product));
+        }
+        return execute(bulkOps, false);
+    }
+
+    private BatchWriteOutcome execute(BulkOperations bulkOps, boolean inserts) {
+        Map<Integer, String> errors = new HashMap<>();
+        BulkWriteResult result;
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getMessage());
+            }
+        }
+        return new BatchWriteOutcome(inserts ? result.getInsertedCount() : result.getMatchedCount(), errors);
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Query query = new Query(Criteria.where("_id").in(toObjectIds(ids)));
+        query.fields().include("_id");
+        Set<String> existing = new HashSet<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            existing.add(product.getId());
+        }
+        return existing;
+    }
+
+    // The batch reports a result per id, which a remove alone can't tell, so the ids that exist
+    // are read first (_id only, from the _id_ index) and removed with a single delete
+    @Override
+    public Set<String> deleteAllById(Collection<String> ids) {
+        Set<String> existing = findExistingIds(ids);
+        if (!existing.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(toObjectIds(existing))), Product.class);
+        }
+        return existing;
+    }
+
+    @Override
+    public Set<String> findExistingNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return new HashSet<>();
+        }
+        Query query = new Query(Criteria.where("name").in(names));
+        return new HashSet<>(mongoTemplate.findDistinct(query, "name", Product.class, String.class));
+    }
+
+    @Override
+    public Map<String, Long> findFingerprintsByName(Collection<String> names) {
+        Map<String, Long> fingerprints = new HashMap<>(names.size() * 2);
+        if (names.isEmpty()) {
+            return fingerprints;
+        }
+        Query query = new Query(Criteria.where("name").in(names));
+        query.fields().include("name", "fingerprint");
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            fingerprints.put(product.getName(), product.getFingerprint());
+        }
+        return fingerprints;
+    }
+
+    @Override
+    public BulkWriteResult upsertBatchByName(List<Product> products) {
+        if (products.isEmpty()) {
+            return BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of());
+        }
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class);
+        for (Product product : products) {
+            bulkOps.upsert(new Query(Criteria.where("name").is(product.getName())), replacementOf(product));
+        }
+        try {
+            return bulkOps.execute();
+        } catch (BulkOperationException e) {
+            return e.getResult();
+        }
+    }
+
+    // Same effect as replacing the stored document, except that the version is incremented
+    private Update replacementOf(Product product) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        Document document = new Document();
+        converter.write(product, document);
+        Update update = new Update();
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            if (!entry.getKey().equals("_id") && !entry.getKey().equals("version")) {
+                update.set(entry.getKey(), entry.getValue());
+            }
+        }
+        for (MongoPersistentProperty property : converter.getMappingContext()
+                .getRequiredPersistentEntity(Product.class)) {
+            if (!property.isIdProperty() && !property.isVersionProperty()
+                    && !document.containsKey(property.getFieldName())) {
+                update.unset(property.getFieldName());
+            }
+        }
+        return update.inc("version", 1);
+    }
+
+    @Override
+    public void initializeVersion(String id) {
+        mongoTemplate.updateFirst(missingVersionQuery(id), initialVersion(), Product.class);
+    }
+
+    static Query missingVersionQuery(String id) {
+        return new Query(Criteria.where("_id").is(toObjectId(id)).and("version").exists(false));
+    }
+
+    static Update initialVersion() {
+        return new Update().set("version", 0L);
+    }
+
+    @Override
+    public Product updateAndGet(String id, Update update, Long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(toObjectId(id));
+        if (expectedVersion != null) {
+            // Products that were never versioned are at version 0
+            criteria = expectedVersion == 0 ? criteria.and("version").in(0L, null)
+                    : criteria.and("version").is(expectedVersion);
+        }
+        return mongoTemplate.findAndModify(new Query(criteria), update.inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+
+    @Override
+    public List<Product> findPage(Query filter, KeysetPageRequest page) {
+        return mongoTemplate.find(pageQuery(filter, page), Product.class);
+    }
+
+    @Override
+    public List<Map<String, Object>> findProjected(Query filter, Collection<String> fields) {
+        return findProjectedDocuments(filter != null ? Query.of(filter) : new Query(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> findPageProjected(Query filter, KeysetPageRequest page,
+            Collection<String> fields) {
+        return findProjectedDocuments(pageQuery(filter, page), fields);
+    }
+
+    private List<Map<String, Object>> findProjectedDocuments(Query query, Collection<String> fields) {
+        List<Document> documents = mongoTemplate.find(project(query, fields), Document.class,
+                mongoTemplate.getCollectionName(Product.class));
+        List<Map<String, Object>> products = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            products.add(projectedProduct(document));
+        }
+        return products;
+    }
+
+    // Shared with the reactive repository, fields are the JSON names of ProductView.FIELDS
+    static Query project(Query query, Collection<String> fields) {
+        boolean includeId = false;
+        for (String field : fields) {
+            if (field.equals("id")) {
+                includeId = true;
+            } else {
+                query.fields().include(field);
+            }
+        }
+        if (!includeId) {
+            query.fields().exclude("_id");
+        }
+        return query;
+    }
+
+    static Map<String, Object> projectedProduct(Document document) {
+        Map<String, Object> product = new LinkedHashMap<>(document.size() * 2);
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            if (entry.getKey().equals("_id")) {
+                Object id = entry.getValue();
+                product.put("id", id instanceof ObjectId ? ((ObjectId) id).toHexString() : id);
+            } else {
+                product.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return product;
+    }
+
+    // Keyset query on raw field names, so it maps the same for entities and projected documents
+    private Query pageQuery(Query filter, KeysetPageRequest page) {
+        Query query = filter != null ? Query.of(filter) : new Query();
+        boolean sortById = page.sortField().equals("id");
+        String sortField = sortById ? "_id" : page.sortField();
+        if (!page.isFirstPage()) {
+            Object lastId = toObjectId(page.lastId());
+            Criteria afterId = page.ascending() ? Criteria.where("_id").gt(lastId) : Criteria.where("_id").lt(lastId);
+            if (sortById) {
+                query.addCriteria(afterId);
+            } else {
+                Criteria afterValue = page.ascending() ? Criteria.where(sortField).gt(page.lastValue())
+                        : Criteria.where(sortField).lt(page.lastValue());
+                Criteria sameValue = Criteria.where(sortField).is(page.lastValue());
+                query.addCriteria(new Criteria().orOperator(afterValue, new Criteria().andOperator(sameValue, afterId)));
+            }
+        }
+        Sort.Direction direction = page.ascending() ? Sort.Direction.ASC : Sort.Direction.DESC;
+        query.with(sortById ? Sort.by(direction, "_id") : Sort.by(direction, sortField, "_id"));
+        query.limit(page.limit());
+        return query;
+    }
+
+    private static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private static List<Object> toObjectIds(Collection<String> ids) {
+        List<Object> objectIds = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            objectIds.add(toObjectId(id));
+        }
+        return objectIds;
+    }
+
+    @Override
+    public Stream<Product> streamAll(int batchSize) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        return mongoTemplate.stream(query, Product.class);
+    }
+
+}
@@ -0,0 +1,10 @@
+package test.abcmotor.msvc_products.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public interface ReactiveProductRepository extends ReactiveMongoRepository<Product, String>,
+        ReactiveProductRepositoryCustom {
+
+}
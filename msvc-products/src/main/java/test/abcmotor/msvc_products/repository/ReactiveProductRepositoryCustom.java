@@ -0,0 +1,22 @@
+package test.abcmotor.msvc_products.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.core.publisher.Mono;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public interface ReactiveProductRepositoryCustom {
+
+    // Same conditional $inc as ProductRepositoryCustom.adjustStock, empty when nothing changed
+    Mono<Product> adjustStock(String id, int delta);
+
+    Mono<Void> initializeVersion(String id);
+
+    // Same projection as ProductRepositoryCustom.findProjected, for a single product
+    Mono<Map<String, Object>> findOneProjected(Query filter, Collection<String> fields);
+
+}
@@ -0,0 +1,43 @@
+package test.abcmotor.msvc_products.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.core.publisher.Mono;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public class ReactiveProductRepositoryCustomImpl implements ReactiveProductRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveProductRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Product> adjustStock(String id, int delta) {
+        return mongoTemplate.findAndModify(ProductRepositoryCustomImpl.stockQuery(id, delta),
+                ProductRepositoryCustomImpl.stockUpdate(delta), FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+    }
+
+    @Override
+    public Mono<Void> initializeVersion(String id) {
+        return mongoTemplate.updateFirst(ProductRepositoryCustomImpl.missingVersionQuery(id),
+                ProductRepositoryCustomImpl.initialVersion(), Product.class).then();
+    }
+
+    @Override
+    public Mono<Map<String, Object>> findOneProjected(Query filter, Collection<String> fields) {
+        return mongoTemplate.findOne(ProductRepositoryCustomImpl.project(Query.of(filter), fields), Document.class,
+                mongoTemplate.getCollectionName(Product.class))
+                .map(ProductRepositoryCustomImpl::projectedProduct);
+    }
+
+}
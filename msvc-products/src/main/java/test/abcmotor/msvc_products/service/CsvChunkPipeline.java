@@ -0,0 +1,88 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.opencsv.CSVParser;
+
+public class CsvChunkPipeline {
+
+    // The calling thread splits the input into chunks of whole records, the workers parse
+    // and map them, and the results are handed to the sink on the calling thread in file
+    // order. At most maxInFlight chunks exist at any time, which bounds the heap and makes
+    // the reader wait for a slow sink.
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int chunkSize;
+
+    public CsvChunkPipeline(ExecutorService executor, int workers, int chunkSize) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, workers) * 2;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public <T> void run(CsvRecordReader records, Function<String[], T> mapper, Consumer<T> sink)
+            throws Exception {
+        Deque<Future<List<T>>> inFlight = new ArrayDeque<>(maxInFlight);
+        try {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String record;
+            while ((record = records.readRecord()) != null) {
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    inFlight.add(submit(chunk, mapper));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= maxInFlight) {
+                        drain(inFlight.poll(), sink);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(chunk, mapper));
+            }
+            while (!inFlight.isEmpty()) {
+                drain(inFlight.poll(), sink);
+            }
+        } finally {
+            for (Future<List<T>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<List<T>> submit(List<String> chunk, Function<String[], T> mapper) {
+        return executor.submit(() -> {
+            CSVParser parser = new CSVParser();
+            List<T> mapped = new ArrayList<>(chunk.size());
+            for (String record : chunk) {
+                mapped.add(mapper.apply(parser.parseLine(record)));
+            }
+            return mapped;
+        });
+    }
+
+    private <T> void drain(Future<List<T>> future, Consumer<T> sink) throws Exception {
+        List<T> mapped;
+        try {
+            mapped = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+        for (T item : mapped) {
+            sink.accept(item);
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Date;
+
+public class CsvImportRow implements ImportRow {
+
+    private final String[] line;
+
+    public CsvImportRow(String[] line) {
+        this.line = line;
+    }
+
+    @Override
+    public String text(int column) {
+        return line[column].trim();
+    }
+
+    @Override
+    public double decimal(int column) {
+        return ImportValues.parseDecimal(line[column], 0.0);
+    }
+
+    @Override
+    public int integer(int column) {
+        return ImportValues.parseInteger(line[column], 0);
+    }
+
+    @Override
+    public Date date(int column) {
+        return ImportValues.parseDate(line[column]);
+    }
+
+}
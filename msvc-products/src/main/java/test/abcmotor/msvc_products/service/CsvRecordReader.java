@@ -0,0 +1,77 @@
+package test.abcmotor.msvc_products.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+public class CsvRecordReader implements Closeable {
+
+    // Splits CSV input into raw records without parsing the fields, so the parsing
+    // itself can run somewhere else. A newline only ends a record outside quotes, and
+    // backslash escapes follow the default opencsv CSVParser rules.
+
+    private static final char QUOTE = '"';
+    private static final char ESCAPE = '\\';
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder record = new StringBuilder(256);
+
+    private int position;
+    private int limit;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Returns the next record without its line terminator, or null at the end of the input
+    public String readRecord() throws IOException {
+        record.setLength(0);
+        boolean inQuotes = false;
+        boolean escaped = false;
+        boolean read = false;
+
+        while (true) {
+            if (position >= limit) {
+                limit = reader.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return read ? record.toString() : null;
+                }
+            }
+            char c = buffer[position++];
+            read = true;
+
+            if (escaped) {
+                escaped = false;
+                if (c == QUOTE || c == ESCAPE) {
+                    record.append(c);
+                    continue;
+                }
+            }
+
+            if (c == ESCAPE) {
+                escaped = true;
+            } else if (c == QUOTE) {
+                inQuotes = !inQuotes;
+            } else if (c == '\n') {
+                // Same as BufferedReader.readLine, \r\n counts as a single line break
+                int last = record.length() - 1;
+                if (last >= 0 && record.charAt(last) == '\r') {
+                    record.setLength(last);
+                }
+                if (!inQuotes) {
+                    return record.toString();
+                }
+            }
+            record.append(c);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
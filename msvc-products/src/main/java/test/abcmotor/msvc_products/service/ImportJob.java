@@ -0,0 +1,112 @@
+package test.abcmotor.msvc_products.service;
+
+import java.time.Instant;
+
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+    private final ImportSummary summary;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+
+    public ImportJob(String id, String fileName, ImportMode mode) {
+        this.id = id;
+        this.fileName = fileName;
+        this.summary = new ImportSummary(mode);
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        summary.started();
+        status = Status.RUNNING;
+    }
+
+    void finished(String message) {
+        this.message = message;
+        finishedAt = Instant.now();
+        // Import errors are reported as a message, only a finished summary means success
+        status = summary.isFinished() ? Status.COMPLETED : Status.FAILED;
+    }
+
+    ImportSummary summary() {
+        return summary;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public ImportMode getMode() {
+        return summary.getMode();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getRowsParsed() {
+        return summary.getRowsRead();
+    }
+
+    public long getInserted() {
+        return summary.getInserted();
+    }
+
+    public long getUpdated() {
+        return summary.getUpdated();
+    }
+
+    public long getUnchanged() {
+        return summary.getUnchanged();
+    }
+
+    public long getSkipped() {
+        return summary.getDuplicates();
+    }
+
+    public long getInvalid() {
+        return summary.getInvalid();
+    }
+
+    public int getBatches() {
+        return summary.getBatches();
+    }
+
+    public long getRowsPerSecond() {
+        return status == Status.QUEUED ? 0 : summary.getRowsPerSecond();
+    }
+
+    boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+}
@@ -0,0 +1,106 @@
+package test.abcmotor.msvc_products.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+@Profile("!reactive")
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final ProductService productService;
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(ProductService productService,
+            @Value("${products.import.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${products.import.jobs.queue-capacity:10}") int queueCapacity,
+            @Value("${products.import.jobs.retention:1h}") Duration retention) {
+        this.productService = productService;
+        this.retention = retention;
+
+        // Imports get their own small pool, the Tomcat threads stay free for the CRUD endpoints
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "import-job-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // The upload is copied to a temp file because the multipart data goes away with the request
+    public ImportJob submit(MultipartFile file, ImportMode mode) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (fileName == null) {
+            throw new IllegalArgumentException("File name is null");
+        }
+        evictExpiredJobs();
+
+        File tempFile = Files.createTempFile("products-import-job-", ".upload").toFile();
+        file.transferTo(tempFile);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName, mode);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, tempFile));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> findById(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ImportJob job, File tempFile) {
+        job.started();
+        String message;
+        try (InputStream inputStream = new FileInputStream(tempFile)) {
+            message = productService.importProductsFromFile(job.getFileName(), inputStream, job.summary());
+        } catch (Exception e) {
+            log.error("Import job {} for {} failed", job.getId(), job.getFileName(), e);
+            message = "An error occurred while processing the file: " + e.getMessage();
+        } finally {
+            tempFile.delete();
+        }
+        job.finished(message);
+    }
+
+    private void evictExpiredJobs() {
+        Instant expiredBefore = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt().isBefore(expiredBefore));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
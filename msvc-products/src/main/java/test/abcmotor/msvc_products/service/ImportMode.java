@@ -0,0 +1,19 @@
+package test.abcmotor.msvc_products.service;
+
+public enum ImportMode {
+
+    // Only inserts products whose name is not stored yet
+    INSERT,
+    // Inserts new products and rewrites the stored ones whose content changed
+    DELTA;
+
+    public static ImportMode fromValue(String value) {
+        for (ImportMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown import mode: " + value + ". Use insert or delta");
+    }
+
+}
@@ -0,0 +1,15 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Date;
+
+public interface ImportRow {
+
+    String text(int column);
+
+    double decimal(int column);
+
+    int integer(int column);
+
+    Date date(int column);
+
+}
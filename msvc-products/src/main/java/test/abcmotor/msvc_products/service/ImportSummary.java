@@ -0,0 +1,139 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportSummary {
+
+    // Upper bound for the duplicate names echoed back, the counter keeps the real total
+    private static final int MAX_REPORTED_DUPLICATES = 100;
+
+    // Counters are only written by the thread running the import, volatile is enough
+    // for the job status endpoint to read them while the import is in progress
+    private final ImportMode mode;
+    private final List<String> duplicatedProducts = new ArrayList<>();
+
+    private volatile long rowsRead;
+    private volatile long inserted;
+    private volatile long updated;
+    private volatile long unchanged;
+    private volatile long duplicates;
+    private volatile long invalid;
+    private volatile int batches;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long finishNanos;
+
+    public ImportSummary() {
+        this(ImportMode.INSERT);
+    }
+
+    public ImportSummary(ImportMode mode) {
+        this.mode = mode;
+    }
+
+    // Background jobs restart the clock when they leave the queue, so the waiting time
+    // doesn't count against the throughput
+    void started() {
+        startNanos = System.nanoTime();
+    }
+
+    public ImportMode getMode() {
+        return mode;
+    }
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void duplicate(String description) {
+        duplicates++;
+        if (duplicatedProducts.size() < MAX_REPORTED_DUPLICATES) {
+            duplicatedProducts.add(description);
+        }
+    }
+
+    public void invalid() {
+        invalid++;
+    }
+
+    public void batchWritten(int insertedInBatch) {
+        inserted += insertedInBatch;
+        batches++;
+    }
+
+    public void deltaBatchWritten(int insertedInBatch, int updatedInBatch, int unchangedInBatch) {
+        inserted += insertedInBatch;
+        updated += updatedInBatch;
+        unchanged += unchangedInBatch;
+        batches++;
+    }
+
+    public void finish() {
+        finishNanos = System.nanoTime();
+    }
+
+    public boolean isFinished() {
+        return finishNanos != 0;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getRowsPerSecond() {
+        long endNanos = isFinished() ? finishNanos : System.nanoTime();
+        double seconds = Math.max(endNanos - startNanos, 1) / 1_000_000_000.0;
+        return Math.round(rowsRead / seconds);
+    }
+
+    public String toMessage() {
+        StringBuilder response = new StringBuilder();
+        response.append("Products imported: ").append(inserted);
+        if (mode == ImportMode.DELTA) {
+            response.append(", updated: ").append(updated).append(", unchanged: ").append(unchanged);
+        }
+
+        if (duplicates > 0) {
+            response.append(". Duplicates skipped (").append(duplicates).append("): ");
+            response.append(String.join(", ", duplicatedProducts));
+            if (duplicates > duplicatedProducts.size()) {
+                response.append(", ... and ").append(duplicates - duplicatedProducts.size()).append(" more");
+            }
+        }
+
+        if (invalid > 0) {
+            response.append(". Invalid rows skipped: ").append(invalid);
+        }
+
+        response.append(". Rows read: ").append(rowsRead)
+                .append(", batches: ").append(batches)
+                .append(", rows/sec: ").append(getRowsPerSecond());
+
+        return response.toString();
+    }
+
+}
@@ -0,0 +1,153 @@
+package test.abcmotor.msvc_products.service;
+
+import static java.time.temporal.ChronoField.DAY_OF_MONTH;
+import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
+import static java.time.temporal.ChronoField.YEAR;
+
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+public final class ImportValues {
+
+    // Value parsing shared by every import format. Invalid input returns the fallback
+    // instead of throwing, bad cells are common and exceptions are expensive per row.
+
+    // dd-MM-yyyy, also accepting single digit days and months
+    private static final DateTimeFormatter DAY_FIRST = new DateTimeFormatterBuilder()
+            .appendValue(DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValue(MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValue(YEAR, 4)
+            .toFormatter();
+
+    // yyyy-MM-dd
+    private static final DateTimeFormatter YEAR_FIRST = new DateTimeFormatterBuilder()
+            .appendValue(YEAR, 4)
+            .appendLiteral('-')
+            .appendValue(MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValue(DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+            .toFormatter();
+
+    private ImportValues() {
+    }
+
+    public static double parseDecimal(String text, double fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        String value = text.trim();
+        return isDecimal(value) ? Double.parseDouble(value) : fallback;
+    }
+
+    public static int parseInteger(String text, int fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        String value = text.trim();
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        if (i == length) {
+            return fallback;
+        }
+        long result = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return fallback;
+            }
+            result = result * 10 + (c - '0');
+            if (result > (long) Integer.MAX_VALUE + 1) {
+                return fallback;
+            }
+        }
+        result = negative ? -result : result;
+        return result > Integer.MAX_VALUE ? fallback : (int) result;
+    }
+
+    // Accepts dd-MM-yyyy and yyyy-MM-dd, returns null for anything else
+    public static Date parseDate(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.trim();
+        LocalDate date = parseLocalDate(DAY_FIRST, value);
+        if (date == null) {
+            date = parseLocalDate(YEAR_FIRST, value);
+        }
+        return date != null ? Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    private static LocalDate parseLocalDate(DateTimeFormatter formatter, String value) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = formatter.parseUnresolved(value, position);
+        if (parsed == null || position.getErrorIndex() >= 0 || position.getIndex() != value.length()) {
+            return null;
+        }
+        int year = (int) parsed.getLong(YEAR);
+        int month = (int) parsed.getLong(MONTH_OF_YEAR);
+        int day = (int) parsed.getLong(DAY_OF_MONTH);
+        if (month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    // [+-]digits[.digits][(e|E)[+-]digits], with at least one digit in the mantissa
+    private static boolean isDecimal(String value) {
+        int length = value.length();
+        int i = 0;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && isAsciiDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isAsciiDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && isAsciiDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    // Character.isDigit also accepts other scripts' digits, which Double.parseDouble rejects
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
@@ -0,0 +1,16 @@
+package test.abcmotor.msvc_products.service;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final String productId;
+
+    public InsufficientStockException(String productId, int quantity) {
+        super("Not enough stock of product " + productId + " to reserve " + quantity);
+        this.productId = productId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+}
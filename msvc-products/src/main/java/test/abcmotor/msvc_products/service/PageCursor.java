@@ -0,0 +1,37 @@
+package test.abcmotor.msvc_products.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import test.abcmotor.msvc_products.repository.KeysetPageRequest;
+
+public final class PageCursor {
+
+    // Cursor tokens are "sort:direction\nlastId\nlastKey" in url-safe Base64, so a token can
+    // only be used with the sort it was created for
+
+    private PageCursor() {
+    }
+
+    public static String encode(ProductSort sort, boolean ascending, String lastId, String lastKey) {
+        String token = sort.name() + ":" + (ascending ? "asc" : "desc") + "\n" + lastId + "\n" + lastKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetPageRequest decode(String cursor, ProductSort sort, boolean ascending, int limit) {
+        if (cursor == null || cursor.isBlank()) {
+            return new KeysetPageRequest(sort.getField(), ascending, null, null, limit);
+        }
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = token.split("\n", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.name() + ":" + (ascending ? "asc" : "desc"))) {
+                throw new IllegalArgumentException("The cursor does not belong to this sort");
+            }
+            return new KeysetPageRequest(sort.getField(), ascending, sort.parseKey(parts[2]), parts[1], limit);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.repository.ProductRepository;
+
+public class ProductBatchWriter {
+
+    private final ProductRepository productRepository;
+    private final ImportSummary summary;
+    private final int batchSize;
+    private final List<Product> buffer;
+
+    public ProductBatchWriter(ProductRepository productRepository, ImportSummary summary, int batchSize) {
+        this.productRepository = productRepository;
+        this.summary = summary;
+        this.batchSize = Math.max(1, batchSize);
+        this.buffer = new ArrayList<>(this.batchSize);
+    }
+
+    public void add(Product product) {
+        product.setFingerprint(ProductFingerprint.of(product));
+        buffer.add(product);
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        if (summary.getMode() == ImportMode.DELTA) {
+            flushDelta();
+        } else {
+            flushInsert();
+        }
+        // Only the current batch is kept in memory, no matter how big the file is
+        buffer.clear();
+    }
+
+    private void flushInsert() {
+        // Check the whole batch against the database in one round-trip
+        Set<String> names = new HashSet<>(buffer.size() * 2);
+        for (Product product : buffer) {
+            names.add(product.getName());
+        }
+        Set<String> existingNames = productRepository.findExistingNames(names);
+
+        List<Product> newProducts = buffer;
+        if (!existingNames.isEmpty()) {
+            newProducts = new ArrayList<>(buffer.size());
+            for (Product product : buffer) {
+                if (existingNames.contains(product.getName())) {
+                    summary.duplicate(product.getName());
+                } else {
+                    newProducts.add(product);
+                }
+            }
+        }
+
+        summary.batchWritten(productRepository.insertBatch(newProducts));
+    }
+
+    private void flushDelta() {
+        Set<String> names = new HashSet<>(buffer.size() * 2);
+        for (Product product : buffer) {
+            names.add(product.getName());
+        }
+        Map<String, Long> storedFingerprints = productRepository.findFingerprintsByName(names);
+
+        // New rows are inserted like in the insert mode, so they start at version 0 as well.
+        // Changed rows go out in one bulk upsert that bumps their version, unchanged rows are
+        // not written at all
+        List<Product> newProducts = new ArrayList<>();
+        List<Product> changedProducts = new ArrayList<>(buffer.size());
+        int unchanged = 0;
+        for (Product product : buffer) {
+            Long storedFingerprint = storedFingerprints.get(product.getName());
+            if (!storedFingerprints.containsKey(product.getName())) {
+                newProducts.add(product);
+            } else if (product.getFingerprint().equals(storedFingerprint)) {
+                unchanged++;
+            } else {
+                changedProducts.add(product);
+            }
+        }
+
+        int inserted = productRepository.insertBatch(newProducts);
+        int updated = 0;
+        if (!changedProducts.isEmpty()) {
+            BulkWriteResult result = productRepository.upsertBatchByName(changedProducts);
+            inserted += result.getUpserts().size();
+            updated = result.getModifiedCount();
+        }
+        summary.deltaBatchWritten(inserted, updated, unchanged);
+    }
+
+}
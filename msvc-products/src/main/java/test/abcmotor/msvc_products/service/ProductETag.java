@@ -0,0 +1,71 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Collection;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public final class ProductETag {
+
+    // A product's ETag is its version followed by the port of the instance that served it, which
+    // is part of the body. Listings hash the id and version of every product on the page, so they
+    // only change when one of their products does
+
+    private ProductETag() {
+    }
+
+    public static String of(Product product) {
+        return "\"" + versionOf(product) + "-" + product.getPort() + "\"";
+    }
+
+    public static String of(Collection<Product> products, String... qualifiers) {
+        long h = 0xcbf29ce484222325L;
+        for (String qualifier : qualifiers) {
+            h = mix(h, qualifier != null ? qualifier : "");
+        }
+        for (Product product : products) {
+            h = mix(h, product.getId() != null ? product.getId() : "");
+            h = mix(h, Long.toString(versionOf(product)));
+        }
+        return "\"" + Long.toHexString(h) + "-" + products.size() + "\"";
+    }
+
+    // Version named by an If-Match header, null when the header is absent or is "*". The port is
+    // ignored, so an ETag from one instance is a valid precondition on any other
+    public static Long parseVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return null;
+        }
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        int port = value.indexOf('-');
+        if (port > 0) {
+            value = value.substring(0, port);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header: " + ifMatch);
+        }
+    }
+
+    // Products saved before versioning are read with a null version until they are migrated
+    private static long versionOf(Product product) {
+        return product.getVersion() != null ? product.getVersion() : 0L;
+    }
+
+    private static long mix(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (h ^ 0x1f) * 0x100000001b3L;
+    }
+
+}
@@ -0,0 +1,62 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Date;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public final class ProductFingerprint {
+
+    // 64-bit hash over the catalog fields of a product, stored with the document so a delta
+    // import can tell unchanged rows apart without reading the whole stored product
+
+    private static final long SEPARATOR = 0x1f;
+
+    private ProductFingerprint() {
+    }
+
+    public static long of(Product product) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, product.getName());
+        h = mix(h, product.getDescription());
+        h = mix(h, Double.doubleToLongBits(product.getPrice()));
+        h = mix(h, product.getStock() != null ? product.getStock() : Long.MIN_VALUE);
+        h = mix(h, product.getImage());
+        h = mix(h, product.getPlatforms());
+        h = mix(h, product.getGenres());
+        h = mix(h, Double.doubleToLongBits(product.getDiscount()));
+        h = mix(h, product.getDeveloper());
+        h = mix(h, product.getPublisher());
+        Date releaseDate = product.getRelease_date();
+        h = mix(h, releaseDate != null ? releaseDate.getTime() : Long.MIN_VALUE);
+        return finish(h);
+    }
+
+    private static long mix(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            h = (h ^ SEPARATOR) * 0x100000001b3L;
+        } else {
+            h = (h ^ 0x00) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            h = (h ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+        }
+        return (h ^ SEPARATOR) * 0x100000001b3L;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
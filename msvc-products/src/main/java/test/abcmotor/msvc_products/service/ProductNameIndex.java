@@ -0,0 +1,82 @@
+package test.abcmotor.msvc_products.service;
+
+public class ProductNameIndex {
+
+    // Keeps a 64-bit hash of every case-folded name seen in the current import instead of
+    // the names themselves: 8 bytes per slot in a flat open-addressing table, no boxing.
+    // A false "duplicate" needs two different names sharing the same 64-bit hash.
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private int resizeThreshold;
+
+    public ProductNameIndex() {
+        this(1024);
+    }
+
+    public ProductNameIndex(int expectedNames) {
+        int capacity = Integer.highestOneBit(Math.max(expectedNames, 8) * 2 - 1) << 1;
+        this.table = new long[capacity];
+        this.resizeThreshold = capacity / 2;
+    }
+
+    // Returns true when the name was not seen before in this import
+    public boolean add(String name) {
+        long hash = hash(name);
+        if (insert(table, hash)) {
+            if (++size > resizeThreshold) {
+                grow();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean insert(long[] slots, long hash) {
+        int mask = slots.length - 1;
+        int slot = (int) hash & mask;
+        while (slots[slot] != EMPTY) {
+            if (slots[slot] == hash) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = hash;
+        return true;
+    }
+
+    private void grow() {
+        long[] newTable = new long[table.length * 2];
+        for (long hash : table) {
+            if (hash != EMPTY) {
+                insert(newTable, hash);
+            }
+        }
+        table = newTable;
+        resizeThreshold = newTable.length / 2;
+    }
+
+    // FNV-1a over the case-folded chars followed by the murmur3 finalizer,
+    // same folding as String.equalsIgnoreCase and without building a lower-cased copy
+    static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            h ^= c;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+
+}
@@ -0,0 +1,77 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Arrays;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public class ProductRowBinder {
+
+    // The header is resolved once into a column plan, binding a row is then plain index
+    // lookups. Instances are immutable and shared by the import workers.
+
+    public static final String[] REQUIRED_COLUMNS = { "name", "description", "price", "stock", "image",
+            "platforms", "genres", "discount", "developer", "publisher", "release_date" };
+
+    private final int name;
+    private final int description;
+    private final int price;
+    private final int stock;
+    private final int image;
+    private final int platforms;
+    private final int genres;
+    private final int discount;
+    private final int developer;
+    private final int publisher;
+    private final int releaseDate;
+
+    private ProductRowBinder(int[] plan) {
+        this.name = plan[0];
+        this.description = plan[1];
+        this.price = plan[2];
+        this.stock = plan[3];
+        this.image = plan[4];
+        this.platforms = plan[5];
+        this.genres = plan[6];
+        this.discount = plan[7];
+        this.developer = plan[8];
+        this.publisher = plan[9];
+        this.releaseDate = plan[10];
+    }
+
+    // Returns null when one of the required columns is missing from the header
+    public static ProductRowBinder compile(String[] headers) {
+        int[] plan = new int[REQUIRED_COLUMNS.length];
+        Arrays.fill(plan, -1);
+        for (int i = 0; i < headers.length; i++) {
+            String header = headers[i] != null ? headers[i].trim().toLowerCase() : "";
+            for (int column = 0; column < REQUIRED_COLUMNS.length; column++) {
+                if (REQUIRED_COLUMNS[column].equals(header)) {
+                    plan[column] = i;
+                }
+            }
+        }
+        for (int index : plan) {
+            if (index == -1) {
+                return null;
+            }
+        }
+        return new ProductRowBinder(plan);
+    }
+
+    public Product bind(ImportRow row) {
+        Product product = new Product();
+        product.setName(row.text(name));
+        product.setDescription(row.text(description));
+        product.setPrice(row.decimal(price));
+        product.setStock(row.integer(stock));
+        product.setImage(row.text(image));
+        product.setPlatforms(row.text(platforms));
+        product.setGenres(row.text(genres));
+        product.setDiscount(row.decimal(discount));
+        product.setDeveloper(row.text(developer));
+        product.setPublisher(row.text(publisher));
+        product.setRelease_date(row.date(releaseDate));
+        return product;
+    }
+
+}
@@ -1,22 +1,54 @@
 package test.abcmotor.msvc_products.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import test.abcmotor.msvc_products.models.dto.BatchItemResult;
+import test.abcmotor.msvc_products.models.dto.ProductPage;
+import test.abcmotor.msvc_products.models.dto.ProductSearch;
 import test.abcmotor.msvc_products.models.entities.Product;
 
 public interface ProductService {
-    String importProductsFromFile(MultipartFile file);
+    String importProductsFromFile(MultipartFile file, ImportMode mode);
+
+    String importProductsFromFile(String fileName, InputStream inputStream, ImportSummary summary);
 
     List<Product> findAll();
 
+    List<Map<String, Object>> findAll(List<String> fields);
+
+    ProductPage<Product> findPage(ProductSearch search, String cursor, Integer size, String sort, String direction);
+
+    ProductPage<Map<String, Object>> findPage(ProductSearch search, String cursor, Integer size, String sort,
+            String direction, List<String> fields);
+
+    void exportCatalog(OutputStream outputStream) throws IOException;
+
     Optional<Product> findById(String id);
 
+    Optional<Map<String, Object>> findById(String id, List<String> fields);
+
     Product create(Product product);
 
     Optional<Product> update(String id, Product product);
 
+    Optional<Product> update(String id, Product product, Long expectedVersion);
+
+    Optional<Product> patch(String id, Map<String, Object> changes, Long expectedVersion);
+
     boolean delete(String id);
+
+    List<BatchItemResult> findByIds(List<String> ids);
+
+    List<BatchItemResult> createAll(List<Product> products);
+
+    List<BatchItemResult> updateAll(List<Product> products);
+
+    List<BatchItemResult> deleteAll(List<String> ids);
 }
@@ -1,195 +1,165 @@
 package test.abcmotor.msvc_products.service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.text.SimpleDateFormat;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
-
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.opencsv.CSVReader;
-
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.opencsv.CSVParser;
+
+import test.abcmotor.msvc_products.config.ImportExecutorConfig;
+import test.abcmotor.msvc_products.models.dto.BatchItemResult;
+import test.abcmotor.msvc_products.models.dto.ProductPage;
+import test.abcmotor.msvc_products.models.dto.ProductSearch;
 import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.repository.BatchWriteOutcome;
+import test.abcmotor.msvc_products.repository.KeysetPageRequest;
 import test.abcmotor.msvc_products.repository.ProductRepository;
 
 @Service
+@Profile("!reactive")
 public class ProductServiceImpl implements ProductService {
 
+    public static final String PRODUCT_CACHE = "products";
+
+    private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
+
     private ProductRepository productRepository;
     private Environment environment;
-
-    public ProductServiceImpl(ProductRepository productRepository, Environment environment) {
+    private ExecutorService importWorkers;
+    private int importBatchSize;
+    private int importWorkerCount;
+    private int importChunkSize;
+    private ObjectMapper objectMapper;
+    private int defaultPageSize;
+    private int maxPageSize;
+    private int exportBatchSize;
+    private int maxBatchSize;
+    private volatile int serverPort;
+
+    public ProductServiceImpl(ProductRepository productRepository, Environment environment, ObjectMapper objectMapper,
+            @Qualifier("productImportWorkers") ExecutorService importWorkers,
+            @Value("${products.import.batch-size:1000}") int importBatchSize,
+            @Value("${products.import.workers:0}") int importWorkerCount,
+            @Value("${products.import.chunk-size:2000}") int importChunkSize,
+            @Value("${products.page.default-size:20}") int defaultPageSize,
+            @Value("${products.page.max-size:200}") int maxPageSize,
+            @Value("${products.export.batch-size:500}") int exportBatchSize,
+            @Value("${products.batch.max-size:100}") int maxBatchSize) {
         this.productRepository = productRepository;
         this.environment = environment;
+        this.importWorkers = importWorkers;
+        this.importBatchSize = importBatchSize;
+        this.importWorkerCount = ImportExecutorConfig.resolveWorkers(importWorkerCount);
+        this.importChunkSize = importChunkSize;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.exportBatchSize = exportBatchSize;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @Override
-    public String importProductsFromFile(MultipartFile file) {
+    @CacheEvict(cacheNames = PRODUCT_CACHE, allEntries = true)
+    public String importProductsFromFile(MultipartFile file, ImportMode mode) {
         String fileName = file.getOriginalFilename();
         if (fileName == null) {
             return "File name is null";
         }
-        try {
-            InputStream inputStream = file.getInputStream();
-            if (fileName.endsWith(".csv")) {
-                return importProductsFromCSV(inputStream);
-            }
-            if (fileName.endsWith(".xlsx")) {
-                return importProductsFromExcel(inputStream);
-            }
-            return "The file format is not supported. Please upload a CSV or Excel file.";
+        try (InputStream inputStream = file.getInputStream()) {
+            return importProductsFromFile(fileName, inputStream, new ImportSummary(mode));
         } catch (Exception e) {
             e.printStackTrace();
             return "An error occurred while processing the file: " + e.getMessage();
         }
     }
 
-    private String importProductsFromCSV(InputStream inputStream) {
-        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
-            String[] headers = reader.readNext();
-            if (headers == null) {
-                return "CSV file mustn't contain header required";
-            }
-
-            int nameIndex = -1;
-            int descriptionIndex = -1;
-            int priceIndex = -1;
-            int stockIndex = -1;
-            int imageIndex = -1;
-            int platformsIndex = -1;
-            int genresIndex = -1;
-            int discountIndex = -1;
-            int developerIndex = -1;
-            int publisherIndex = -1;
-            int releaseDateIndex = -1;
-
-            System.err.println("Headers: " + String.join(", ", headers));
-
-            for (int i = 0; i < headers.length; i++) {
-                switch (headers[i].trim().toLowerCase()) {
-                    case "name":
-                        nameIndex = i;
-                        break;
-                    case "description":
-                        descriptionIndex = i;
-                        break;
-                    case "price":
-                        priceIndex = i;
-                        break;
-                    case "stock":
-                        stockIndex = i;
-                        break;
-                    case "image":
-                        imageIndex = i;
-                        break;
-                    case "platforms":
-                        platformsIndex = i;
-                        break;
-                    case "genres":
-                        genresIndex = i;
-                        break;
-                    case "discount":
-                        discountIndex = i;
-                        break;
-                    case "developer":
-                        developerIndex = i;
-                        break;
-                    case "publisher":
-                        publisherIndex = i;
-                        break;
-                    case "release_date":
-                        releaseDateIndex = i;
-                        break;
-                }
+    @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, allEntries = true)
+    public String importProductsFromFile(String fileName, InputStream inputStream, ImportSummary summary) {
+        String name = fileName.toLowerCase();
+        try {
+            // Compressed feeds are inflated while they are read, never written out to disk
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+                inputStream = new GZIPInputStream(inputStream, 64 * 1024);
             }
+        } catch (IOException e) {
+            return "The file is not a valid gzip file: " + e.getMessage();
+        }
+        if (name.endsWith(".csv")) {
+            return importProductsFromCSV(inputStream, summary);
+        }
+        if (name.endsWith(".xlsx")) {
+            return importProductsFromExcel(inputStream, summary);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return importProductsFromNdjson(inputStream, summary);
+        }
+        return "The file format is not supported. Please upload a CSV (.csv, .csv.gz), Excel (.xlsx) "
+                + "or NDJSON (.ndjson, .jsonl, .ndjson.gz) file.";
+    }
 
-            System.err.println("Indices - Name: " + nameIndex + ", Description: " + descriptionIndex +
-                    ", Price: " + priceIndex + ", Stock: " + stockIndex + ", Image: " + imageIndex +
-                    ", Platforms: " + platformsIndex + ", Genres: " + genresIndex + ", Discount: " + discountIndex +
-                    ", Developer: " + developerIndex + ", Publisher: " + publisherIndex + ", Release Date: "
-                    + releaseDateIndex);
-
-            if (nameIndex == -1 || descriptionIndex == -1 || priceIndex == -1 || stockIndex == -1 ||
-                    imageIndex == -1 || platformsIndex == -1 || genresIndex == -1 || discountIndex == -1 ||
-                    developerIndex == -1 || publisherIndex == -1 || releaseDateIndex == -1) {
+    private String importProductsFromCSV(InputStream inputStream, ImportSummary summary) {
+        try (CsvRecordReader records = new CsvRecordReader(new InputStreamReader(inputStream))) {
+            String headerRecord = records.readRecord();
+            if (headerRecord == null) {
                 return "CSV file mustn't contain header required";
             }
+            String[] headers = new CSVParser().parseLine(headerRecord);
 
-            List<Product> products = new ArrayList<>();
-            List<String> duplicatedProducts = new ArrayList<>();
-            String[] line;
-
-            while ((line = reader.readNext()) != null) {
-                String productName = line[nameIndex].trim();
-
-                // Check if product already exists in database
-                if (productRepository.existsByName(productName)) {
-                    duplicatedProducts.add(productName);
-                    continue; // Skip this product
-                }
-
-                // Check if product is already in the current import list
-                boolean alreadyInList = products.stream()
-                        .anyMatch(p -> p.getName().equalsIgnoreCase(productName));
-
-                if (alreadyInList) {
-                    duplicatedProducts.add(productName + " (duplicate in file)");
-                    continue; // Skip this product
-                }
+            System.err.println("Headers: " + String.join(", ", headers));
 
-                Product product = new Product();
-                product.setName(productName);
-                product.setDescription(line[descriptionIndex].trim());
-                product.setImage(line[imageIndex].trim());
-                product.setPlatforms(line[platformsIndex].trim());
-                product.setGenres(line[genresIndex].trim());
-                product.setDeveloper(line[developerIndex].trim());
-                product.setPublisher(line[publisherIndex].trim());
-                try {
-                    product.setPrice(Double.parseDouble(line[priceIndex].trim()));
-                    product.setDiscount(Double.parseDouble(line[discountIndex].trim()));
-                } catch (NumberFormatException e) {
-                    product.setPrice(0.0);
-                    product.setDiscount(0.0);
-                }
-                try {
-                    product.setStock(Integer.parseInt(line[stockIndex].trim()));
-                } catch (NumberFormatException e) {
-                    product.setStock(0);
-                }
-                try {
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
-                    product.setRelease_date(dateFormat.parse(line[releaseDateIndex].trim()));
-                } catch (Exception e) {
-                    product.setRelease_date(null);
-                }
-                products.add(product);
+            ProductRowBinder binder = ProductRowBinder.compile(headers);
+            if (binder == null) {
+                return "CSV file mustn't contain header required";
             }
 
-            productRepository.saveAll(products);
+            ProductBatchWriter writer = new ProductBatchWriter(productRepository, summary, importBatchSize);
+            ProductNameIndex importedNames = new ProductNameIndex();
 
-            // Build response message
-            StringBuilder response = new StringBuilder();
-            response.append("Products imported: ").append(products.size());
+            // Rows are parsed and mapped on the import workers and come back here in file
+            // order, so the first occurrence of a name is the one that gets imported
+            CsvChunkPipeline pipeline = new CsvChunkPipeline(importWorkers, importWorkerCount, importChunkSize);
+            pipeline.run(records, line -> binder.bind(new CsvImportRow(line)),
+                    product -> addImportedProduct(product, importedNames, writer, summary));
 
-            if (!duplicatedProducts.isEmpty()) {
-                response.append(". Duplicates skipped (").append(duplicatedProducts.size()).append("): ");
-                response.append(String.join(", ", duplicatedProducts));
-            }
+            writer.flush();
 
-            return response.toString();
+            summary.finish();
+            return summary.toMessage();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -197,213 +167,297 @@ public class ProductServiceImpl implements ProductService {
         }
     }
 
-    private String importProductsFromExcel(InputStream inputStream) {
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) {
+    private String importProductsFromExcel(InputStream inputStream, ImportSummary summary) {
+        try (XlsxStreamReader reader = XlsxStreamReader.open(inputStream)) {
+            if (!reader.hasSheet()) {
                 return "The file Excel is empty ";
             }
 
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) {
+            XlsxRow headerRow = reader.nextRow();
+            if (headerRow == null || headerRow.getRowIndex() != 0) {
                 return "The Excel file doesn't have a header.";
             }
 
-            int columns = headerRow.getPhysicalNumberOfCells();
-            int nameIdx = -1, descIdx = -1, priceIdx = -1, stockIdx = -1,
-                    imageIdx = -1, platformsIdx = -1, genresIdx = -1, discountIdx = -1,
-                    developerIdx = -1, publisherIdx = -1, releaseDateIndex = -1;
-
-            for (int i = 0; i < columns; i++) {
-                String value = headerRow.getCell(i).getStringCellValue().trim().toLowerCase();
-                switch (value) {
-                    case "name":
-                        nameIdx = i;
-                        break;
-                    case "description":
-                        descIdx = i;
-                        break;
-                    case "price":
-                        priceIdx = i;
-                        break;
-                    case "stock":
-                        stockIdx = i;
-                        break;
-                    case "image":
-                        imageIdx = i;
-                        break;
-                    case "platforms":
-                        platformsIdx = i;
-                        break;
-                    case "genres":
-                        genresIdx = i;
-                        break;
-                    case "discount":
-                        discountIdx = i;
-                        break;
-                    case "developer":
-                        developerIdx = i;
-                        break;
-                    case "publisher":
-                        publisherIdx = i;
-                        break;
-                    case "release_date":
-                        releaseDateIndex = i;
-                        break;
-                }
+            String[] headers = new String[headerRow.getCellCount()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = headerRow.text(i);
             }
 
-            if (nameIdx == -1 || descIdx == -1 || priceIdx == -1 || stockIdx == -1 ||
-                    imageIdx == -1 || platformsIdx == -1 || genresIdx == -1 || discountIdx == -1 ||
-                    developerIdx == -1 || publisherIdx == -1 || releaseDateIndex == -1) {
+            ProductRowBinder binder = ProductRowBinder.compile(headers);
+            if (binder == null) {
                 return "The file mustn't contain columns required: name, description, price, stock";
             }
 
-            List<Product> products = new ArrayList<>();
-            List<String> duplicatedProducts = new ArrayList<>();
+            ProductBatchWriter writer = new ProductBatchWriter(productRepository, summary, importBatchSize);
+            ProductNameIndex importedNames = new ProductNameIndex();
+
+            // Rows are streamed from the sheet XML and flushed in fixed-size batches
+            XlsxRow row;
+            while ((row = reader.nextRow()) != null) {
+                addImportedProduct(binder.bind(row), importedNames, writer, summary);
+            }
 
-            for (int r = 1; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null)
-                    continue;
+            writer.flush();
 
-                String productName = getCellString(row, nameIdx);
+            summary.finish();
+            return summary.toMessage();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return "Error processing the Excel file: " + ex.getMessage();
+        }
+    }
 
-                // Check if product already exists in database
-                if (productRepository.existsByName(productName)) {
-                    duplicatedProducts.add(productName);
+    private String importProductsFromNdjson(InputStream inputStream, ImportSummary summary) {
+        // One product per line, MappingIterator decodes a line at a time from the stream
+        try (MappingIterator<Product> products = objectMapper.readerFor(Product.class).readValues(inputStream)) {
+            ProductBatchWriter writer = new ProductBatchWriter(productRepository, summary, importBatchSize);
+            ProductNameIndex importedNames = new ProductNameIndex();
+
+            while (products.hasNextValue()) {
+                Product product = products.nextValue();
+                if (product.getName() == null || product.getName().isBlank()) {
+                    summary.rowRead();
+                    summary.invalid();
                     continue; // Skip this product
                 }
+                // Names are trimmed like the CSV and Excel cells so duplicates are caught the same way
+                product.setName(product.getName().trim());
+                // Imported products are always new documents
+                product.setId(null);
+                addImportedProduct(product, importedNames, writer, summary);
+            }
 
-                // Check if product is already in the current import list
-                boolean alreadyInList = products.stream()
-                        .anyMatch(p -> p.getName().equalsIgnoreCase(productName));
+            writer.flush();
 
-                if (alreadyInList) {
-                    duplicatedProducts.add(productName + " (duplicate in file)");
-                    continue; // Skip this product
-                }
+            summary.finish();
+            return summary.toMessage();
+        } catch (Exception e) {
+            log.error("NDJSON product import failed", e);
+            return "Error importing products from NDJSON: " + e.getMessage();
+        }
+    }
 
-                Product product = new Product();
-                product.setName(productName);
-                product.setDescription(getCellString(row, descIdx));
-                product.setPrice(getCellDouble(row, priceIdx));
-                product.setStock((int) getCellDouble(row, stockIdx));
-                product.setImage(getCellString(row, imageIdx));
-                product.setPlatforms(getCellString(row, platformsIdx));
-                product.setGenres(getCellString(row, genresIdx));
-                product.setDiscount(getCellDouble(row, discountIdx));
-                product.setDeveloper(getCellString(row, developerIdx));
-                product.setPublisher(getCellString(row, publisherIdx));
-                product.setRelease_date(getCellDate(row, releaseDateIndex));
-                products.add(product);
-            }
+    private void addImportedProduct(Product product, ProductNameIndex importedNames, ProductBatchWriter writer,
+            ImportSummary summary) {
+        summary.rowRead();
 
-            productRepository.saveAll(products);
+        // Products already in the database are filtered per batch by the writer
+        // Check if product is already in the current import
+        if (!importedNames.add(product.getName())) {
+            summary.duplicate(product.getName() + " (duplicate in file)");
+            return; // Skip this product
+        }
+        writer.add(product);
+    }
 
-            // Build response message
-            StringBuilder response = new StringBuilder();
-            response.append("Products imported: ").append(products.size());
+    @Override
+    public List<Product> findAll() {
+        int port = serverPort();
+        List<Product> products = productRepository.findAll();
+        for (Product product : products) {
+            product.setPort(port);
+        }
+        return products;
+    }
 
-            if (!duplicatedProducts.isEmpty()) {
-                response.append(". Duplicates skipped (").append(duplicatedProducts.size()).append("): ");
-                response.append(String.join(", ", duplicatedProducts));
-            }
+    @Override
+    public List<Map<String, Object>> findAll(List<String> fields) {
+        return productRepository.findProjected(null, fields);
+    }
 
-            return response.toString();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return "Error processing the Excel file: " + ex.getMessage();
+    // The port is only known once the web server has started and does not change afterwards
+    private int serverPort() {
+        if (serverPort == 0) {
+            serverPort = environment.getProperty("local.server.port", Integer.class, 0);
         }
+        return serverPort;
     }
 
-    private String getCellString(Row row, int idx) {
-        Cell cell = row.getCell(idx);
-        if (cell == null)
-            return "";
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                return String.valueOf(cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            case BLANK:
-            default:
-                return "";
+    @Override
+    public ProductPage<Product> findPage(ProductSearch search, String cursor, Integer size, String sort,
+            String direction) {
+        Query filter = filterOf(search);
+        ProductSort productSort = ProductSort.fromValue(sort);
+        boolean ascending = isAscending(direction);
+        int limit = pageLimit(size);
+
+        // One extra product tells whether there is a next page without a count query
+        KeysetPageRequest page = PageCursor.decode(cursor, productSort, ascending, limit + 1);
+        List<Product> products = productRepository.findPage(filter, page);
+        String nextCursor = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            Product last = products.get(limit - 1);
+            nextCursor = PageCursor.encode(productSort, ascending, last.getId(), productSort.keyOf(last));
         }
+        return new ProductPage<>(products, nextCursor, limit);
     }
 
-    private double getCellDouble(Row row, int idx) {
-        Cell cell = row.getCell(idx);
-        if (cell == null)
-            return 0.0;
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return cell.getNumericCellValue();
-        } else if (cell.getCellType() == CellType.STRING) {
-            try {
-                return Double.parseDouble(cell.getStringCellValue());
-            } catch (NumberFormatException e) {
-                return 0.0;
+    @Override
+    public ProductPage<Map<String, Object>> findPage(ProductSearch search, String cursor, Integer size, String sort,
+            String direction, List<String> fields) {
+        Query filter = filterOf(search);
+        ProductSort productSort = ProductSort.fromValue(sort);
+        boolean ascending = isAscending(direction);
+        int limit = pageLimit(size);
+
+        // The cursor needs the id and the sort key even when they were not requested
+        List<String> projected = new ArrayList<>(fields);
+        boolean stripId = !projected.contains("id");
+        boolean stripSortKey = productSort != ProductSort.ID && !projected.contains(productSort.getField());
+        if (stripId) {
+            projected.add("id");
+        }
+        if (stripSortKey) {
+            projected.add(productSort.getField());
+        }
+
+        KeysetPageRequest page = PageCursor.decode(cursor, productSort, ascending, limit + 1);
+        List<Map<String, Object>> products = productRepository.findPageProjected(filter, page, projected);
+        String nextCursor = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            Map<String, Object> last = products.get(limit - 1);
+            nextCursor = PageCursor.encode(productSort, ascending, (String) last.get("id"), productSort.keyOf(last));
+        }
+        if (stripId || stripSortKey) {
+            for (Map<String, Object> product : products) {
+                if (stripId) {
+                    product.remove("id");
+                }
+                if (stripSortKey) {
+                    product.remove(productSort.getField());
+                }
             }
         }
-        return 0.0;
+        return new ProductPage<>(products, nextCursor, limit);
     }
 
-    private Date getCellDate(Row row, int idx) {
-        Cell cell = row.getCell(idx);
-        if (cell == null)
+    // Every filter is matched by an index: the tag arrays are multikey, name and description
+    // have a text index, and developer, publisher and price are indexed together with _id
+    private Query filterOf(ProductSearch search) {
+        if (search == null) {
             return null;
-
-        if (cell.getCellType() == CellType.NUMERIC) {
-            // Si es una fecha de Excel (número serial)
-            try {
-                return cell.getDateCellValue();
-            } catch (Exception e) {
-                return null;
+        }
+        Query filter = new Query();
+        if (StringUtils.hasText(search.getQ())) {
+            filter.addCriteria(TextCriteria.forDefaultLanguage().matching(search.getQ()));
+        }
+        if (StringUtils.hasText(search.getGenre())) {
+            filter.addCriteria(Criteria.where("genreTags").all(Product.tagsOf(search.getGenre())));
+        }
+        if (StringUtils.hasText(search.getPlatform())) {
+            filter.addCriteria(Criteria.where("platformTags").all(Product.tagsOf(search.getPlatform())));
+        }
+        if (StringUtils.hasText(search.getDeveloper())) {
+            filter.addCriteria(Criteria.where("developer").is(search.getDeveloper()));
+        }
+        if (StringUtils.hasText(search.getPublisher())) {
+            filter.addCriteria(Criteria.where("publisher").is(search.getPublisher()));
+        }
+        if (search.getMinPrice() != null || search.getMaxPrice() != null) {
+            if (search.getMinPrice() != null && search.getMaxPrice() != null
+                    && search.getMinPrice() > search.getMaxPrice()) {
+                throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+            }
+            Criteria price = Criteria.where("price");
+            if (search.getMinPrice() != null) {
+                price.gte(search.getMinPrice());
+            }
+            if (search.getMaxPrice() != null) {
+                price.lte(search.getMaxPrice());
             }
-        } else if (cell.getCellType() == CellType.STRING) {
-            // Si es un string, intentar parsearlo
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
-                return dateFormat.parse(cell.getStringCellValue().trim());
-            } catch (Exception e) {
-                // Si falla con dd-MM-yyyy, intentar con yyyy-MM-dd
-                try {
-                    SimpleDateFormat dateFormat2 = new SimpleDateFormat("yyyy-MM-dd");
-                    return dateFormat2.parse(cell.getStringCellValue().trim());
-                } catch (Exception e2) {
-                    return null;
+            filter.addCriteria(price);
+        }
+        return filter;
+    }
+
+    private boolean isAscending(String direction) {
+        if ("asc".equalsIgnoreCase(direction)) {
+            return true;
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown direction: " + direction + ". Use asc or desc");
+    }
+
+    private int pageLimit(Integer size) {
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("The page size must be greater than 0");
+        }
+        return size == null ? defaultPageSize : Math.min(size, maxPageSize);
+    }
+
+    @Override
+    public void exportCatalog(OutputStream outputStream) throws IOException {
+        // Products are written as they come off the cursor, only one cursor batch is held in
+        // memory and the response is flushed once per batch
+        ObjectWriter productWriter = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<Product> products = productRepository.streamAll(exportBatchSize);
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            int written = 0;
+            for (Product product : (Iterable<Product>) products::iterator) {
+                productWriter.writeValue(generator, product);
+                if (++written % exportBatchSize == 0) {
+                    generator.flush();
                 }
             }
+            generator.writeEndArray();
         }
-        return null;
     }
 
     @Override
-    public List<Product> findAll() {
-        return (productRepository.findAll().stream().map(product -> {
-            product.setPort(Integer.parseInt(environment.getProperty("local.server.port")));
+    @Cacheable(cacheNames = PRODUCT_CACHE, unless = "#result == null")
+    public Optional<Product> findById(String id) {
+        // Like findAll, the product tells which instance served it
+        return productRepository.findById(id).map(product -> {
+            product.setPort(serverPort());
             return product;
-        }).collect(Collectors.toList()));
+        });
     }
 
     @Override
-    public Optional<Product> findById(String id) {
-        return productRepository.findById(id);
+    public Optional<Map<String, Object>> findById(String id, List<String> fields) {
+        List<Map<String, Object>> products = productRepository.findProjected(
+                new Query(Criteria.where("_id").is(ObjectId.isValid(id) ? new ObjectId(id) : id)), fields);
+        return products.stream().findFirst();
     }
 
     @Override
     public Product create(Product product) {
+        // With optimistic locking save() only inserts a product without version, an id would
+        // end in a duplicate key instead of the replace it used to be
+        if (product.getId() != null) {
+            throw new IllegalArgumentException("The id is assigned by the service, use PUT /api/products/{id} "
+                    + "to replace an existing product");
+        }
+        product.setFingerprint(ProductFingerprint.of(product));
         return productRepository.save(product);
     }
 
     @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, key = "#id")
     public Optional<Product> update(String id, Product product) {
+        return update(id, product, null);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, key = "#id")
+    public Optional<Product> update(String id, Product product, Long expectedVersion) {
         return productRepository.findById(id)
                 .map(existing -> {
+                    if (existing.getVersion() == null) {
+                        productRepository.initializeVersion(id);
+                        existing.setVersion(0L);
+                    }
+                    if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                        throw new OptimisticLockingFailureException("Product " + id + " is at version "
+                                + existing.getVersion() + ", not " + expectedVersion);
+                    }
                     existing.setName(product.getName());
                     existing.setDescription(product.getDescription());
                     existing.setPrice(product.getPrice());
@@ -415,11 +469,90 @@ public class ProductServiceImpl implements ProductService {
                     existing.setDeveloper(product.getDeveloper());
                     existing.setPublisher(product.getPublisher());
                     existing.setRelease_date(product.getRelease_date());
+                    existing.setFingerprint(ProductFingerprint.of(existing));
+                    // save() checks the version again, so a concurrent edit fails instead of being lost
                     return productRepository.save(existing);
                 });
     }
 
     @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, key = "#id")
+    public Optional<Product> patch(String id, Map<String, Object> changes, Long expectedVersion) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        for (String field : changes.keySet()) {
+            if (field.equals("id") || !ProductView.FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " can't be updated");
+            }
+        }
+        // Values are converted the same way as a full product body
+        Product values = objectMapper.convertValue(changes, Product.class);
+
+        // Only the given fields are written, in the same operation that reads the result back
+        Update update = new Update();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String field = change.getKey();
+            if (change.getValue() == null) {
+                // The name is required, price and discount are primitives and stock reservations
+                // need a stored stock
+                if (field.equals("name") || field.equals("price") || field.equals("discount")
+                        || field.equals("stock")) {
+                    throw new IllegalArgumentException("Field " + field + " can't be null");
+                }
+                update.unset(field);
+            } else {
+                update.set(field, fieldValue(values, field));
+            }
+        }
+        if (changes.containsKey("platforms")) {
+            update.set("platformTags", values.getPlatformTags());
+        }
+        if (changes.containsKey("genres")) {
+            update.set("genreTags", values.getGenreTags());
+        }
+        // Recomputing the fingerprint would take a read, without it the next delta import
+        // rewrites the product once
+        update.unset("fingerprint");
+
+        Product patched = productRepository.updateAndGet(id, update, expectedVersion);
+        if (patched == null && expectedVersion != null && productRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException("Product " + id + " is not at version " + expectedVersion);
+        }
+        return Optional.ofNullable(patched);
+    }
+
+    private static Object fieldValue(Product product, String field) {
+        switch (field) {
+            case "name":
+                return product.getName();
+            case "description":
+                return product.getDescription();
+            case "price":
+                return product.getPrice();
+            case "stock":
+                return product.getStock();
+            case "image":
+                return product.getImage();
+            case "platforms":
+                return product.getPlatforms();
+            case "genres":
+                return product.getGenres();
+            case "discount":
+                return product.getDiscount();
+            case "developer":
+                return product.getDeveloper();
+            case "publisher":
+                return product.getPublisher();
+            case "release_date":
+                return product.getRelease_date();
+            default:
+                throw new IllegalArgumentException("Field " + field + " can't be updated");
+        }
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, key = "#id")
     public boolean delete(String id) {
         if (!productRepository.existsById(id))
             return false;
@@ -427,4 +560,119 @@ public class ProductServiceImpl implements ProductService {
         return true;
     }
 
-}
\ No newline at end of file
+    @Override
+    public List<BatchItemResult> findByIds(List<String> ids) {
+        checkBatchSize(ids);
+        // One $in query, results are reported in the order of the request
+        Map<String, Product> found = new HashMap<>(ids.size() * 2);
+        for (Product product : productRepository.findAllById(ids)) {
+            found.put(product.getId(), product);
+        }
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Product product = found.get(ids.get(i));
+            results.add(product != null ? BatchItemResult.found(i, product) : BatchItemResult.of(i, ids.get(i), "not_found"));
+        }
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Product> products) {
+        checkBatchSize(products);
+        List<BatchItemResult> results = new ArrayList<>(products.size());
+        List<Product> valid = new ArrayList<>(products.size());
+        List<Integer> positions = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            results.add(null);
+            if (product == null || product.getName() == null || product.getName().isBlank()) {
+                results.set(i, BatchItemResult.failed(i, null, "The product name is required"));
+                continue;
+            }
+            // Ids are assigned here so every item can be reported, new documents only
+            product.setId(new ObjectId().toHexString());
+            product.setFingerprint(ProductFingerprint.of(product));
+            valid.add(product);
+            positions.add(i);
+        }
+        if (!valid.isEmpty()) {
+            BatchWriteOutcome outcome = productRepository.insertAll(valid);
+            for (int j = 0; j < valid.size(); j++) {
+                int i = positions.get(j);
+                String error = outcome.errors().get(j);
+                results.set(i, error != null ? BatchItemResult.failed(i, valid.get(j).getId(), error)
+                        : BatchItemResult.of(i, valid.get(j).getId(), "created"));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, allEntries = true)
+    public List<BatchItemResult> updateAll(List<Product> products) {
+        checkBatchSize(products);
+        List<BatchItemResult> results = new ArrayList<>(products.size());
+        List<Product> valid = new ArrayList<>(products.size());
+        List<Integer> positions = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            results.add(null);
+            if (product == null || product.getId() == null) {
+                results.set(i, BatchItemResult.failed(i, null, "The product id is required"));
+                continue;
+            }
+            // Same replacement as PUT, every field is written
+            product.setFingerprint(ProductFingerprint.of(product));
+            valid.add(product);
+            positions.add(i);
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+        BatchWriteOutcome outcome = productRepository.replaceAllById(valid);
+        // Which ids did not match is only looked up when some of them did not
+        Set<String> existing = null;
+        if (outcome.count() + outcome.errors().size() < valid.size()) {
+            List<String> ids = new ArrayList<>(valid.size());
+            for (Product product : valid) {
+                ids.add(product.getId());
+            }
+            existing = productRepository.findExistingIds(ids);
+        }
+        for (int j = 0; j < valid.size(); j++) {
+            int i = positions.get(j);
+            String id = valid.get(j).getId();
+            String error = outcome.errors().get(j);
+            if (error != null) {
+                results.set(i, BatchItemResult.failed(i, id, error));
+            } else if (existing != null && !existing.contains(id)) {
+                results.set(i, BatchItemResult.of(i, id, "not_found"));
+            } else {
+                results.set(i, BatchItemResult.of(i, id, "updated"));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCT_CACHE, allEntries = true)
+    public List<BatchItemResult> deleteAll(List<String> ids) {
+        checkBatchSize(ids);
+        Set<String> deleted = productRepository.deleteAllById(ids);
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            results.add(BatchItemResult.of(i, ids.get(i), deleted.contains(ids.get(i)) ? "deleted" : "not_found"));
+        }
+        return results;
+    }
+
+    private void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("The batch is empty");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch can have at most " + maxBatchSize + " items");
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Map;
+
+import test.abcmotor.msvc_products.models.entities.Product;
+
+public enum ProductSort {
+
+    ID("id"),
+    NAME("name"),
+    PRICE("price");
+
+    private final String field;
+
+    ProductSort(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public static ProductSort fromValue(String value) {
+        for (ProductSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + value + ". Use id, name or price");
+    }
+
+    // Sort key of a product as stored in a page cursor
+    String keyOf(Product product) {
+        switch (this) {
+            case NAME:
+                return formatKey(product.getName());
+            case PRICE:
+                return formatKey(product.getPrice());
+            case ID:
+            default:
+                return "";
+        }
+    }
+
+    String keyOf(Map<String, Object> product) {
+        return this == ID ? "" : formatKey(product.get(field));
+    }
+
+    private String formatKey(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (this == PRICE) {
+            return Double.toString(((Number) value).doubleValue());
+        }
+        return value.toString();
+    }
+
+    Object parseKey(String key) {
+        switch (this) {
+            case NAME:
+                return key;
+            case PRICE:
+                return Double.parseDouble(key);
+            case ID:
+            default:
+                return null;
+        }
+    }
+
+}
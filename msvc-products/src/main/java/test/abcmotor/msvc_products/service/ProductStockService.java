@@ -0,0 +1,132 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import test.abcmotor.msvc_products.models.dto.StockLevel;
+import test.abcmotor.msvc_products.models.dto.StockLine;
+import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.repository.ProductRepository;
+
+@Service
+@Profile("!reactive")
+public class ProductStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStockService.class);
+
+    // No locks here: every change is a single conditional $inc on the product document, so
+    // concurrent reservations of the same product are serialized by MongoDB
+
+    private final ProductRepository productRepository;
+    private final Cache productCache;
+    private final int maxLines;
+
+    public ProductStockService(ProductRepository productRepository, CacheManager cacheManager,
+            @Value("${products.batch.max-size:100}") int maxLines) {
+        this.productRepository = productRepository;
+        this.productCache = cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE);
+        this.maxLines = maxLines;
+    }
+
+    public Optional<StockLevel> reserve(String id, int quantity) {
+        checkQuantity(quantity);
+        Product product = productRepository.adjustStock(id, -quantity);
+        if (product == null) {
+            // The reason is only looked up when the reservation did not go through
+            if (!productRepository.existsById(id)) {
+                return Optional.empty();
+            }
+            throw new InsufficientStockException(id, quantity);
+        }
+        evict(id);
+        return Optional.of(new StockLevel(id, product.getStock()));
+    }
+
+    public Optional<StockLevel> release(String id, int quantity) {
+        checkQuantity(quantity);
+        Product product = productRepository.adjustStock(id, quantity);
+        if (product == null) {
+            return Optional.empty();
+        }
+        evict(id);
+        return Optional.of(new StockLevel(id, product.getStock()));
+    }
+
+    // All lines are reserved or none: when a line fails, the lines already reserved are released
+    public List<StockLevel> reserveAll(List<StockLine> lines) {
+        Map<String, Integer> quantities = merge(lines);
+        List<StockLevel> reserved = new ArrayList<>(quantities.size());
+        try {
+            for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                Optional<StockLevel> level = reserve(line.getKey(), line.getValue());
+                if (level.isEmpty()) {
+                    throw new IllegalArgumentException("Product " + line.getKey() + " not found");
+                }
+                reserved.add(level.get());
+            }
+        } catch (RuntimeException e) {
+            for (StockLevel level : reserved) {
+                try {
+                    release(level.getId(), quantities.get(level.getId()));
+                } catch (RuntimeException releaseError) {
+                    log.error("Could not release {} units of product {}: {}", quantities.get(level.getId()),
+                            level.getId(), releaseError.getMessage());
+                }
+            }
+            throw e;
+        }
+        return reserved;
+    }
+
+    public List<StockLevel> releaseAll(List<StockLine> lines) {
+        Map<String, Integer> quantities = merge(lines);
+        List<StockLevel> released = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            release(line.getKey(), line.getValue()).ifPresent(released::add);
+        }
+        return released;
+    }
+
+    // Lines of the same product are added up, so they are checked against the stock together
+    private Map<String, Integer> merge(List<StockLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("The order has no lines");
+        }
+        if (lines.size() > maxLines) {
+            throw new IllegalArgumentException("An order can have at most " + maxLines + " lines");
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (StockLine line : lines) {
+            if (line == null || line.getId() == null) {
+                throw new IllegalArgumentException("Every line needs a product id");
+            }
+            checkQuantity(line.getQuantity());
+            quantities.merge(line.getId(), line.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private void checkQuantity(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("The quantity must be greater than 0");
+        }
+    }
+
+    private void evict(String id) {
+        if (productCache != null) {
+            productCache.evict(id);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public enum ProductView {
+
+    // Everything but the long description and image strings
+    CATALOG("id", "name", "price", "stock", "platforms", "genres", "discount", "developer", "publisher",
+            "release_date"),
+    SUMMARY("id", "name", "price", "discount", "stock");
+
+    public static final Set<String> FIELDS = Set.of("id", "name", "description", "price", "stock", "image",
+            "platforms", "genres", "discount", "developer", "publisher", "release_date");
+
+    private final List<String> fields;
+
+    ProductView(String... fields) {
+        this.fields = List.of(fields);
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    // Fields to project from the fields= and view= request parameters, null when the full
+    // product was asked for
+    public static List<String> resolveFields(String fields, String view) {
+        if (fields != null && view != null) {
+            throw new IllegalArgumentException("Use either fields or view, not both");
+        }
+        if (view != null) {
+            if ("full".equalsIgnoreCase(view)) {
+                return null;
+            }
+            for (ProductView productView : values()) {
+                if (productView.name().equalsIgnoreCase(view)) {
+                    return productView.fields;
+                }
+            }
+            throw new IllegalArgumentException("Unknown view: " + view + ". Use full, catalog or summary");
+        }
+        if (fields == null) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + ". Allowed fields: "
+                        + String.join(", ", FIELDS));
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        return new ArrayList<>(selected);
+    }
+
+}
@@ -0,0 +1,129 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import test.abcmotor.msvc_products.models.dto.StockLevel;
+import test.abcmotor.msvc_products.models.entities.Product;
+import test.abcmotor.msvc_products.repository.ReactiveProductRepository;
+
+// Non-blocking counterpart of ProductServiceImpl and ProductStockService for the reactive profile
+@Service
+@Profile("reactive")
+public class ReactiveProductService {
+
+    private final ReactiveProductRepository productRepository;
+    private final Environment environment;
+    private volatile int serverPort;
+
+    public ReactiveProductService(ReactiveProductRepository productRepository, Environment environment) {
+        this.productRepository = productRepository;
+        this.environment = environment;
+    }
+
+    public Flux<Product> findAll() {
+        int port = serverPort();
+        return productRepository.findAll().map(product -> {
+            product.setPort(port);
+            return product;
+        });
+    }
+
+    private int serverPort() {
+        if (serverPort == 0) {
+            serverPort = environment.getProperty("local.server.port", Integer.class, 0);
+        }
+        return serverPort;
+    }
+
+    public Flux<Product> export() {
+        return productRepository.findAll();
+    }
+
+    public Mono<Product> findById(String id) {
+        return productRepository.findById(id).map(product -> {
+            product.setPort(serverPort());
+            return product;
+        });
+    }
+
+    public Mono<Map<String, Object>> findById(String id, List<String> fields) {
+        return productRepository.findOneProjected(
+                new Query(Criteria.where("_id").is(ObjectId.isValid(id) ? new ObjectId(id) : id)), fields);
+    }
+
+    public Mono<Product> create(Product product) {
+        if (product.getId() != null) {
+            return Mono.error(new IllegalArgumentException("The id is assigned by the service, use "
+                    + "PUT /api/products/{id} to replace an existing product"));
+        }
+        product.setFingerprint(ProductFingerprint.of(product));
+        return productRepository.save(product);
+    }
+
+    public Mono<Product> update(String id, Product product, Long expectedVersion) {
+        return productRepository.findById(id)
+                .flatMap(existing -> {
+                    if (existing.getVersion() != null) {
+                        return Mono.just(existing);
+                    }
+                    existing.setVersion(0L);
+                    return productRepository.initializeVersion(id).thenReturn(existing);
+                })
+                .flatMap(existing -> {
+                    if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                        return Mono.error(new OptimisticLockingFailureException("Product " + id
+                                + " is at version " + existing.getVersion() + ", not " + expectedVersion));
+                    }
+                    existing.setName(product.getName());
+                    existing.setDescription(product.getDescription());
+                    existing.setPrice(product.getPrice());
+                    existing.setStock(product.getStock());
+                    existing.setImage(product.getImage());
+                    existing.setPlatforms(product.getPlatforms());
+                    existing.setGenres(product.getGenres());
+                    existing.setDiscount(product.getDiscount());
+                    existing.setDeveloper(product.getDeveloper());
+                    existing.setPublisher(product.getPublisher());
+                    existing.setRelease_date(product.getRelease_date());
+                    existing.setFingerprint(ProductFingerprint.of(existing));
+                    return productRepository.save(existing);
+                });
+    }
+
+    public Mono<Boolean> delete(String id) {
+        return productRepository.existsById(id)
+                .flatMap(exists -> exists ? productRepository.deleteById(id).thenReturn(true) : Mono.just(false));
+    }
+
+    public Mono<StockLevel> reserve(String id, int quantity) {
+        if (quantity < 1) {
+            return Mono.error(new IllegalArgumentException("The quantity must be greater than 0"));
+        }
+        return productRepository.adjustStock(id, -quantity)
+                .map(product -> new StockLevel(id, product.getStock()))
+                .switchIfEmpty(productRepository.existsById(id)
+                        .flatMap(exists -> exists ? Mono.error(new InsufficientStockException(id, quantity))
+                                : Mono.empty()));
+    }
+
+    public Mono<StockLevel> release(String id, int quantity) {
+        if (quantity < 1) {
+            return Mono.error(new IllegalArgumentException("The quantity must be greater than 0"));
+        }
+        return productRepository.adjustStock(id, quantity)
+                .map(product -> new StockLevel(id, product.getStock()));
+    }
+
+}
@@ -0,0 +1,128 @@
+package test.abcmotor.msvc_products.service;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+public class XlsxRow implements ImportRow {
+
+    // One instance is reused by XlsxStreamReader for every row of the sheet,
+    // values are only valid until the next row is read
+
+    private final boolean date1904;
+
+    private CellType[] types = new CellType[16];
+    private String[] values = new String[16];
+    private int rowIndex;
+    private int cellCount;
+
+    XlsxRow(boolean date1904) {
+        this.date1904 = date1904;
+    }
+
+    void reset(int rowIndex) {
+        Arrays.fill(types, 0, cellCount, null);
+        Arrays.fill(values, 0, cellCount, null);
+        this.rowIndex = rowIndex;
+        this.cellCount = 0;
+    }
+
+    void set(int column, CellType type, String value) {
+        if (column >= types.length) {
+            int capacity = Math.max(types.length * 2, column + 1);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[column] = type;
+        values[column] = value;
+        cellCount = Math.max(cellCount, column + 1);
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    // Missing cells are reported as null, like Row.getCell
+    public CellType getCellType(int idx) {
+        return idx < cellCount ? types[idx] : null;
+    }
+
+    public String getStringValue(int idx) {
+        return values[idx];
+    }
+
+    public double getNumericValue(int idx) {
+        return Double.parseDouble(values[idx]);
+    }
+
+    public boolean getBooleanValue(int idx) {
+        return "1".equals(values[idx]) || "true".equalsIgnoreCase(values[idx]);
+    }
+
+    public String getFormula(int idx) {
+        return values[idx];
+    }
+
+    public Date getDateValue(int idx) {
+        return DateUtil.getJavaDate(getNumericValue(idx), date1904);
+    }
+
+    // Cell conversions of the former DOM based Excel import: numbers are read from numeric
+    // cells or parsed from text cells, dates from Excel serial numbers or from text
+
+    @Override
+    public String text(int idx) {
+        CellType cellType = getCellType(idx);
+        if (cellType == null)
+            return "";
+        switch (cellType) {
+            case STRING:
+                return getStringValue(idx);
+            case NUMERIC:
+                return String.valueOf(getNumericValue(idx));
+            case BOOLEAN:
+                return String.valueOf(getBooleanValue(idx));
+            case FORMULA:
+                return getFormula(idx);
+            case BLANK:
+            default:
+                return "";
+        }
+    }
+
+    @Override
+    public double decimal(int idx) {
+        CellType cellType = getCellType(idx);
+        if (cellType == CellType.NUMERIC) {
+            return getNumericValue(idx);
+        } else if (cellType == CellType.STRING) {
+            return ImportValues.parseDecimal(getStringValue(idx), 0.0);
+        }
+        return 0.0;
+    }
+
+    @Override
+    public int integer(int idx) {
+        return (int) decimal(idx);
+    }
+
+    @Override
+    public Date date(int idx) {
+        CellType cellType = getCellType(idx);
+        if (cellType == CellType.NUMERIC) {
+            // Si es una fecha de Excel (número serial)
+            return getDateValue(idx);
+        } else if (cellType == CellType.STRING) {
+            // Si es un string, intentar con dd-MM-yyyy y luego con yyyy-MM-dd
+            return ImportValues.parseDate(getStringValue(idx));
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,242 @@
+package test.abcmotor.msvc_products.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+public class XlsxStreamReader implements Closeable {
+
+    // Reads the first sheet of an .xlsx file row by row from the sheet XML, without
+    // building the XSSFWorkbook object model. Only the shared strings table and the
+    // current row are kept in memory.
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+
+    private final File tempFile;
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable strings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader xml;
+    private final XlsxRow row;
+
+    private int lastRowIndex = -1;
+
+    private XlsxStreamReader(File tempFile) throws IOException, OpenXML4JException, SAXException,
+            XMLStreamException {
+        this.tempFile = tempFile;
+        // Opening from a file lets POI read zip entries on demand instead of inflating them all
+        this.pkg = OPCPackage.open(tempFile, PackageAccess.READ);
+        InputStream sheet = null;
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            this.strings = new ReadOnlySharedStringsTable(pkg, false);
+            this.row = new XlsxRow(isDate1904(reader));
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            sheet = sheets.hasNext() ? sheets.next() : null;
+            this.xml = sheet != null ? XML_INPUT_FACTORY.createXMLStreamReader(sheet) : null;
+            this.sheetStream = sheet;
+        } catch (IOException | OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+            // close() is never reached for a reader that failed to open, release the file here
+            if (sheet != null) {
+                try {
+                    sheet.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    public static XlsxStreamReader open(InputStream inputStream) throws IOException {
+        File tempFile = Files.createTempFile("products-import-", ".xlsx").toFile();
+        try {
+            Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return new XlsxStreamReader(tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw new IOException("Invalid Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean hasSheet() {
+        return xml != null;
+    }
+
+    // Returns the next row present in the sheet, or null at the end. Rows missing from
+    // the file are skipped, the returned row is reused on the next call.
+    public XlsxRow nextRow() throws XMLStreamException {
+        if (xml == null) {
+            return null;
+        }
+
+        boolean inInlineString = false;
+        int column = 0;
+        String cellType = null;
+        String value = null;
+        String formula = null;
+        StringBuilder inlineText = null;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "row":
+                        String rowNumber = xml.getAttributeValue(null, "r");
+                        lastRowIndex = rowNumber != null ? Integer.parseInt(rowNumber) - 1 : lastRowIndex + 1;
+                        row.reset(lastRowIndex);
+                        column = 0;
+                        break;
+                    case "c":
+                        String reference = xml.getAttributeValue(null, "r");
+                        if (reference != null) {
+                            column = columnIndex(reference);
+                        }
+                        cellType = xml.getAttributeValue(null, "t");
+                        value = null;
+                        formula = null;
+                        inlineText = null;
+                        break;
+                    case "v":
+                        value = xml.getElementText();
+                        break;
+                    case "f":
+                        formula = xml.getElementText();
+                        break;
+                    case "is":
+                        inInlineString = true;
+                        inlineText = new StringBuilder();
+                        break;
+                    case "t":
+                        if (inInlineString) {
+                            inlineText.append(xml.getElementText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "is":
+                        inInlineString = false;
+                        break;
+                    case "c":
+                        setCell(column, cellType, value, formula, inlineText);
+                        column++;
+                        break;
+                    case "row":
+                        return row;
+                    default:
+                        break;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void setCell(int column, String cellType, String value, String formula, StringBuilder inlineText) {
+        if (formula != null) {
+            row.set(column, CellType.FORMULA, formula);
+            return;
+        }
+        if (cellType == null || cellType.equals("n")) {
+            row.set(column, value == null || value.isEmpty() ? CellType.BLANK : CellType.NUMERIC, value);
+            return;
+        }
+        switch (cellType) {
+            case "s":
+                row.set(column, CellType.STRING, strings.getItemAt(Integer.parseInt(value)).getString());
+                break;
+            case "inlineStr":
+                row.set(column, CellType.STRING, inlineText != null ? inlineText.toString() : "");
+                break;
+            case "str":
+                row.set(column, CellType.STRING, value != null ? value : "");
+                break;
+            case "b":
+                row.set(column, CellType.BOOLEAN, value);
+                break;
+            case "e":
+                row.set(column, CellType.ERROR, value);
+                break;
+            default:
+                row.set(column, CellType.BLANK, null);
+                break;
+        }
+    }
+
+    // "AB12" -> 27
+    private static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws IOException, OpenXML4JException,
+            XMLStreamException {
+        try (InputStream workbook = reader.getWorkbookData()) {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(workbook);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("workbookPr")) {
+                        String date1904 = xml.getAttributeValue(null, "date1904");
+                        return "1".equals(date1904) || "true".equalsIgnoreCase(date1904);
+                    }
+                    if (xml.isStartElement() && xml.getLocalName().equals("sheets")) {
+                        return false;
+                    }
+                }
+                return false;
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (xml != null) {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            // nothing left to read
+        } finally {
+            if (sheetStream != null) {
+                sheetStream.close();
+            }
+            pkg.revert();
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+}
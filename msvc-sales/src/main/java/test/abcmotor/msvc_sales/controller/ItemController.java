@@ -2,21 +2,28 @@ package test.abcmotor.msvc_sales.controller;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import feign.FeignException;
+import test.abcmotor.msvc_sales.models.entities.CartQuote;
 import test.abcmotor.msvc_sales.models.entities.Item;
+import test.abcmotor.msvc_sales.models.entities.QuoteLine;
 import test.abcmotor.msvc_sales.services.ItemService;
+import test.abcmotor.msvc_sales.services.ProductLookupTimeoutException;
 
 @RestController
 @RequestMapping("api/item")
@@ -49,32 +56,52 @@ public class ItemController {
     @PostMapping()
     public ResponseEntity<?> createItem(@RequestParam String productId, @RequestParam int quantity) {
         try {
-            Optional<Item> item = itemService.getItemById(productId);
+            Optional<Item> item = itemService.addItem(productId, quantity);
             if (item.isPresent()) {
-                Item newItem = new Item(item.get().getProduct(), quantity);
-                return ResponseEntity.status(HttpStatus.CREATED).body(newItem);
+                return ResponseEntity.status(HttpStatus.CREATED).body(item.get());
             } else {
                 return ResponseEntity.status(404)
                         .body(Collections.singletonMap("message", "Product not found"));
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.singletonMap("error", "Error creating item: " + e.getMessage()));
         }
     }
 
+    // Prices a whole cart in one call: [{"productId": "...", "quantity": 2}, ...]
+    @PostMapping("/quote")
+    public ResponseEntity<?> quote(@RequestBody List<QuoteLine> lines) {
+        try {
+            CartQuote quote = itemService.quote(lines);
+            if (!quote.getMissingProductIds().isEmpty()) {
+                return ResponseEntity.status(404)
+                        .body(Map.of("message", "Some products don't exist in the microservice",
+                                "missingProductIds", quote.getMissingProductIds()));
+            }
+            return ResponseEntity.ok(quote);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateItem(@PathVariable String id, @RequestParam int quantity) {
         try {
-            Optional<Item> existingItem = itemService.getItemById(id);
-            if (existingItem.isPresent()) {
-                Item item = existingItem.get();
-                item.setQuantity(quantity);
-                return ResponseEntity.ok(item);
+            Optional<Item> item = itemService.updateItem(id, quantity);
+            if (item.isPresent()) {
+                return ResponseEntity.ok(item.get());
             } else {
                 return ResponseEntity.status(404)
                         .body(Collections.singletonMap("message", "Item not found"));
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.singletonMap("error", "Error updating item: " + e.getMessage()));
@@ -84,8 +111,7 @@ public class ItemController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteItem(@PathVariable String id) {
         try {
-            Optional<Item> item = itemService.getItemById(id);
-            if (item.isPresent()) {
+            if (itemService.deleteItem(id)) {
                 return ResponseEntity.ok()
                         .body(Collections.singletonMap("message", "Item deleted successfully"));
             } else {
@@ -131,4 +157,41 @@ public class ItemController {
         }
     }
 
+    // Every figure of the line in cents from a single product lookup, quantity defaults to the
+    // item's own
+    @GetMapping("/{id}/pricing")
+    public ResponseEntity<?> getItemPricing(@PathVariable String id,
+            @RequestParam(required = false) Integer quantity) {
+        if (quantity != null && quantity < 1) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Quantity must be at least 1"));
+        }
+        Optional<Item> item = itemService.getItemById(id);
+        if (item.isPresent()) {
+            if (quantity != null) {
+                item.get().setQuantity(quantity);
+            }
+            return ResponseEntity.ok(item.get().getPricing());
+        } else {
+            return ResponseEntity.status(404)
+                    .body(Collections.singletonMap("message", "Item not found"));
+        }
+    }
+
+    // msvc-products answered with an error or couldn't be reached
+    @ExceptionHandler(FeignException.class)
+    public ResponseEntity<?> handleUpstreamError(FeignException e) {
+        HttpStatus status = e.status() == HttpStatus.SERVICE_UNAVAILABLE.value() || e.status() < 0
+                ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.BAD_GATEWAY;
+        return ResponseEntity.status(status)
+                .body(Collections.singletonMap("error", "msvc-products failed: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(ProductLookupTimeoutException.class)
+    public ResponseEntity<?> handleLookupTimeout(ProductLookupTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+
 }
@@ -0,0 +1,57 @@
+package test.abcmotor.msvc_sales.models.entities;
+
+import java.util.List;
+
+// Priced lines of a cart in request order, the cart totals add up the line figures in cents
+public class CartQuote {
+
+    private final List<Item> items;
+    private final List<String> missingProductIds;
+    private long originalTotalCents;
+    private long discountCents;
+    private long totalCents;
+    private long ivaCents;
+    private long totalWithIvaCents;
+
+    public CartQuote(List<Item> items, List<String> missingProductIds) {
+        this.items = items;
+        this.missingProductIds = missingProductIds;
+        for (Item item : items) {
+            ItemPricing pricing = item.getPricing();
+            originalTotalCents = Math.addExact(originalTotalCents, pricing.originalTotalCents());
+            discountCents = Math.addExact(discountCents, pricing.discountCents());
+            totalCents = Math.addExact(totalCents, pricing.totalCents());
+            ivaCents = Math.addExact(ivaCents, pricing.ivaCents());
+            totalWithIvaCents = Math.addExact(totalWithIvaCents, pricing.totalWithIvaCents());
+        }
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<String> getMissingProductIds() {
+        return missingProductIds;
+    }
+
+    public Double getOriginalTotal() {
+        return ItemPricing.toAmount(originalTotalCents);
+    }
+
+    public Double getTotalDiscount() {
+        return ItemPricing.toAmount(discountCents);
+    }
+
+    public Double getTotal() {
+        return ItemPricing.toAmount(totalCents);
+    }
+
+    public Double getIva() {
+        return ItemPricing.toAmount(ivaCents);
+    }
+
+    public Double getTotalWithIva() {
+        return ItemPricing.toAmount(totalWithIvaCents);
+    }
+
+}
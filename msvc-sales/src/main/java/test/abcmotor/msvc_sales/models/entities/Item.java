@@ -1,13 +1,28 @@
 package test.abcmotor.msvc_sales.models.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import test.abcmotor.msvc_sales.services.PricingEngine;
+
 public class Item {
 
     private ProductDTO product;
     private int quantity;
+    @JsonIgnore
+    private final PricingEngine pricingEngine;
+    // Every figure of the item, computed once and again whenever the product or quantity change
+    @JsonIgnore
+    private ItemPricing pricing;
 
     public Item(ProductDTO product, int quantity) {
+        this(product, quantity, PricingEngine.DEFAULT);
+    }
+
+    public Item(ProductDTO product, int quantity, PricingEngine pricingEngine) {
         this.product = product;
         this.quantity = quantity;
+        this.pricingEngine = pricingEngine;
+        this.pricing = pricingEngine.price(product, quantity);
     }
 
     public ProductDTO getProduct() {
@@ -16,6 +31,7 @@ public class Item {
 
     public void setProduct(ProductDTO product) {
         this.product = product;
+        this.pricing = pricingEngine.price(product, quantity);
     }
 
     public int getQuantity() {
@@ -24,37 +40,33 @@ public class Item {
 
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        this.pricing = pricingEngine.price(product, quantity);
+    }
+
+    @JsonIgnore
+    public ItemPricing getPricing() {
+        return pricing;
     }
 
     public Double getTotal() {
-        if (product == null) {
-            return 0.0;
-        }
-        double priceWithDiscount = product.getPrice() * (1 - product.getDiscount());
-        return priceWithDiscount * quantity;
+        return ItemPricing.toAmount(pricing.totalCents());
     }
 
     public Double getIva() {
-        return getTotal() * 0.15;
+        return ItemPricing.toAmount(pricing.ivaCents());
     }
 
     // Métodos adicionales útiles
     public Double getOriginalTotal() {
-        if (product == null) {
-            return 0.0;
-        }
-        return product.getPrice() * quantity;
+        return ItemPricing.toAmount(pricing.originalTotalCents());
     }
 
     public Double getTotalDiscount() {
-        if (product == null) {
-            return 0.0;
-        }
-        return (product.getPrice() * product.getDiscount()) * quantity;
+        return ItemPricing.toAmount(pricing.discountCents());
     }
 
     public Double getTotalWithIva() {
-        return getTotal() + getIva();
+        return ItemPricing.toAmount(pricing.totalWithIvaCents());
     }
 
 }
@@ -0,0 +1,21 @@
+package test.abcmotor.msvc_sales.models.entities;
+
+// Every figure of an item line in minor units (cents), rates in basis points (1500 = 15%)
+public record ItemPricing(
+        String productId,
+        int quantity,
+        long unitPriceCents,
+        long originalTotalCents,
+        long discountCents,
+        long totalCents,
+        long ivaRateBasisPoints,
+        long ivaCents,
+        long totalWithIvaCents) {
+
+    public static final ItemPricing EMPTY = new ItemPricing(null, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+}
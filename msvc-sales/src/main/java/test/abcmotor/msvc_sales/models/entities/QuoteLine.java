@@ -0,0 +1,32 @@
+package test.abcmotor.msvc_sales.models.entities;
+
+public class QuoteLine {
+
+    private String productId;
+    private int quantity;
+
+    public QuoteLine() {
+    }
+
+    public QuoteLine(String productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+}
@@ -3,7 +3,9 @@ package test.abcmotor.msvc_sales.services;
 import java.util.List;
 import java.util.Optional;
 
+import test.abcmotor.msvc_sales.models.entities.CartQuote;
 import test.abcmotor.msvc_sales.models.entities.Item;
+import test.abcmotor.msvc_sales.models.entities.QuoteLine;
 
 public interface ItemService {
 
@@ -11,4 +13,12 @@ public interface ItemService {
 
     Optional<Item> getItemById(String id);
 
-}
\ No newline at end of file
+    Optional<Item> addItem(String productId, int quantity);
+
+    Optional<Item> updateItem(String id, int quantity);
+
+    boolean deleteItem(String id);
+
+    CartQuote quote(List<QuoteLine> lines);
+
+}
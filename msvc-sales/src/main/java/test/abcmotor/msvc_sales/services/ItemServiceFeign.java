@@ -1,41 +1,168 @@
 package test.abcmotor.msvc_sales.services;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import feign.FeignException;
-import test.abcmotor.msvc_sales.client.ProductFeignClient;
+import test.abcmotor.msvc_sales.models.entities.CartQuote;
 import test.abcmotor.msvc_sales.models.entities.Item;
 import test.abcmotor.msvc_sales.models.entities.ProductDTO;
+import test.abcmotor.msvc_sales.models.entities.QuoteLine;
 
 @Service
 public class ItemServiceFeign implements ItemService {
 
     @Autowired
-    private ProductFeignClient productFeignClient;
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private OrderLedger orderLedger;
+
+    @Value("${sales.quote.max-lines:100}")
+    private int quoteMaxLines;
+
+    @Value("${sales.quote.max-concurrency:8}")
+    private int quoteMaxConcurrency;
 
     @Override
     public List<Item> getAllItems() {
-        return productFeignClient.getAllProducts()
+        return productCatalogCache.getAllProducts()
                 .stream()
-                .map(product -> new Item(product, new Random().nextInt(10) + 1))
+                .map(product -> new Item(product, recordedQuantity(product.getId()), pricingEngine))
                 .collect(Collectors.toList());
 
     }
 
     @Override
     public Optional<Item> getItemById(String id) {
+        return findProduct(id)
+                .map(product -> new Item(product, recordedQuantity(id), pricingEngine));
+    }
+
+    // Items are recorded in the order ledger by product id, the calls below return once the
+    // change is on disk
+    @Override
+    public Optional<Item> addItem(String productId, int quantity) {
+        return findProduct(productId)
+                .map(product -> new Item(product, orderLedger.add(productId, quantity), pricingEngine));
+    }
+
+    @Override
+    public Optional<Item> updateItem(String id, int quantity) {
+        return findProduct(id)
+                .map(product -> new Item(product, orderLedger.set(id, quantity), pricingEngine));
+    }
+
+    @Override
+    public boolean deleteItem(String id) {
+        if (findProduct(id).isEmpty()) {
+            return false;
+        }
+        orderLedger.delete(id);
+        return true;
+    }
+
+    // Products that were never sold have no recorded quantity
+    private int recordedQuantity(String productId) {
+        return productId == null ? 0 : orderLedger.quantityOf(productId).orElse(0);
+    }
+
+    private Optional<ProductDTO> findProduct(String id) {
         try {
-            ProductDTO product = productFeignClient.getProductById(id);
-            return Optional.of(new Item(product, new Random().nextInt(10) + 1));
+            return productCatalogCache.getProduct(id);
         } catch (FeignException e) {
             return Optional.empty();
         }
     }
 
+    // The distinct products of the cart are fetched in parallel on virtual threads, at most
+    // quoteMaxConcurrency at a time, so the quote takes about as long as its slowest lookup
+    @Override
+    public CartQuote quote(List<QuoteLine> lines) {
+        validate(lines);
+
+        Map<String, Optional<ProductDTO>> products = new LinkedHashMap<>();
+        Semaphore permits = new Semaphore(Math.max(1, quoteMaxConcurrency));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, Future<Optional<ProductDTO>>> lookups = new LinkedHashMap<>();
+            for (QuoteLine line : lines) {
+                lookups.computeIfAbsent(line.getProductId(),
+                        id -> executor.submit(() -> findProduct(id, permits)));
+            }
+            for (Map.Entry<String, Future<Optional<ProductDTO>>> lookup : lookups.entrySet()) {
+                products.put(lookup.getKey(), await(lookup.getValue()));
+            }
+        }
+
+        List<Item> items = new ArrayList<>(lines.size());
+        List<String> missing = new ArrayList<>();
+        for (QuoteLine line : lines) {
+            Optional<ProductDTO> product = products.get(line.getProductId());
+            if (product.isPresent()) {
+                items.add(new Item(product.get(), line.getQuantity(), pricingEngine));
+            } else if (!missing.contains(line.getProductId())) {
+                missing.add(line.getProductId());
+            }
+        }
+        return new CartQuote(items, missing);
+    }
+
+    private void validate(List<QuoteLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("The cart has no lines");
+        }
+        if (lines.size() > quoteMaxLines) {
+            throw new IllegalArgumentException("A cart accepts at most " + quoteMaxLines + " lines");
+        }
+        for (QuoteLine line : lines) {
+            if (line == null || line.getProductId() == null || line.getProductId().isBlank()) {
+                throw new IllegalArgumentException("Every line needs a productId");
+            }
+            if (line.getQuantity() < 1) {
+                throw new IllegalArgumentException("Quantity must be at least 1 for product " + line.getProductId());
+            }
+        }
+    }
+
+    private Optional<ProductDTO> findProduct(String id, Semaphore permits) throws InterruptedException {
+        permits.acquire();
+        try {
+            // Only a 404 makes the product missing (the cache answers it with empty), any other
+            // upstream error fails the quote instead of being reported as a missing product
+            return productCatalogCache.getProduct(id);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static Optional<ProductDTO> await(Future<Optional<ProductDTO>> lookup) {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while quoting the cart", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
 }
@@ -0,0 +1,457 @@
+package test.abcmotor.msvc_sales.services;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Append-only journal of item quantities per product, one line per change:
+// <sequence>\t<epoch millis>\t<ADD|SET|DELETE>\t<productId>\t<quantity>
+// A single writer thread takes every change queued while the previous commit was being flushed,
+// appends them with one write and one fsync and only then publishes the new quantities, so the
+// number of fsyncs follows the commit latency instead of the order rate.
+// Every snapshotEvery entries the quantities are written to <path>.snapshot (with the last
+// sequence it covers) and the journal is emptied, so startup reads the snapshot plus a bounded
+// journal. Entries already covered by the snapshot are skipped, which makes a crash between the
+// snapshot and the truncation harmless; a last line cut short by a crash was never acknowledged
+// and is dropped.
+@Component
+public class OrderLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderLedger.class);
+
+    private static final String SNAPSHOT_HEADER = "SNAPSHOT";
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    enum Operation {
+        ADD, SET, DELETE
+    }
+
+    private record Change(Operation operation, String productId, int quantity, CompletableFuture<Integer> result) {
+    }
+
+    private final Path path;
+    private final Path snapshotPath;
+    private final int maxBatch;
+    private final boolean fsync;
+    private final Duration commitTimeout;
+    private final long snapshotEvery;
+    private final ConcurrentMap<String, Integer> quantities = new ConcurrentHashMap<>();
+    private final BlockingQueue<Change> queue;
+    private final FileChannel channel;
+    private final Thread writer;
+    private final Counter commits;
+    private final Counter entries;
+    private final Counter snapshots;
+    // Written by replay and then only by the writer thread
+    private long sequence;
+    private long journalEntries;
+    private volatile boolean closed;
+    // Told about each step of a snapshot, only the tests listen to check their order
+    volatile Consumer<String> snapshotSteps = step -> {
+    };
+
+    public OrderLedger(MeterRegistry meterRegistry,
+            @Value("${sales.ledger.path:data/sales-ledger.log}") Path path,
+            @Value("${sales.ledger.max-batch:512}") int maxBatch,
+            @Value("${sales.ledger.queue-capacity:10000}") int queueCapacity,
+            @Value("${sales.ledger.fsync:true}") boolean fsync,
+            @Value("${sales.ledger.commit-timeout:10s}") Duration commitTimeout,
+            @Value("${sales.ledger.snapshot-every:100000}") long snapshotEvery) throws IOException {
+        this.path = path;
+        this.snapshotPath = path.resolveSibling(path.getFileName() + ".snapshot");
+        this.maxBatch = Math.max(1, maxBatch);
+        this.fsync = fsync;
+        this.commitTimeout = commitTimeout;
+        this.snapshotEvery = snapshotEvery;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        this.commits = Counter.builder("sales.ledger.commits")
+                .description("Group commits written to the order ledger, one fsync each")
+                .register(meterRegistry);
+        this.entries = Counter.builder("sales.ledger.entries")
+                .description("Changes appended to the order ledger")
+                .register(meterRegistry);
+        this.snapshots = Counter.builder("sales.ledger.snapshots")
+                .description("Snapshots that replaced the order ledger journal")
+                .register(meterRegistry);
+
+        try {
+            loadSnapshot();
+            replay();
+            if (snapshotDue()) {
+                snapshot();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.writer = new Thread(this::writeLoop, "sales-ledger-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public OptionalInt quantityOf(String productId) {
+        Integer quantity = quantities.get(productId);
+        return quantity == null ? OptionalInt.empty() : OptionalInt.of(quantity);
+    }
+
+    // Each method returns once the change is durable, with the resulting quantity
+    public int add(String productId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        return submit(Operation.ADD, productId, quantity);
+    }
+
+    public int set(String productId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity can't be negative");
+        }
+        return submit(Operation.SET, productId, quantity);
+    }
+
+    public void delete(String productId) {
+        submit(Operation.DELETE, productId, 0);
+    }
+
+    private int submit(Operation operation, String productId, int quantity) {
+        if (productId == null || productId.isBlank() || productId.indexOf('\t') >= 0 || productId.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Invalid product id");
+        }
+        if (closed) {
+            throw new IllegalStateException("The order ledger is closed");
+        }
+        Change change = new Change(operation, productId, quantity, new CompletableFuture<>());
+        try {
+            if (!queue.offer(change, commitTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("The order ledger is too busy, please try again later");
+            }
+            // close() may have drained the queue between the check above and the offer
+            if (closed && queue.remove(change)) {
+                throw new IllegalStateException("The order ledger is closed");
+            }
+            return change.result().get(commitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording the order", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The order was not confirmed within " + commitTimeout.toMillis()
+                    + " ms, it may still be recorded");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("The order could not be recorded", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<Change> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            Change first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            try {
+                commit(batch);
+            } catch (Throwable e) {
+                // The writer must outlive a failed batch, otherwise every later caller would wait
+                // for a thread that is gone
+                log.error("Could not commit {} changes to the order ledger {}", batch.size(), path, e);
+                IllegalStateException failure = new IllegalStateException("The order could not be recorded", e);
+                batch.forEach(change -> change.result().completeExceptionally(failure));
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Change> batch) {
+        // Quantities after this batch, computed before writing so that a change which can't be
+        // applied is rejected instead of journaled
+        Map<String, Integer> updated = new HashMap<>();
+        List<Change> accepted = new ArrayList<>(batch.size());
+        List<Integer> results = new ArrayList<>(batch.size());
+        StringBuilder lines = new StringBuilder(batch.size() * 64);
+        long timestamp = System.currentTimeMillis();
+        long nextSequence = sequence;
+        for (Change change : batch) {
+            Integer current = updated.containsKey(change.productId())
+                    ? updated.get(change.productId())
+                    : quantities.get(change.productId());
+            Integer result;
+            try {
+                result = apply(change.operation(), current, change.quantity());
+            } catch (ArithmeticException e) {
+                change.result().completeExceptionally(
+                        new IllegalArgumentException("Quantity too large for product " + change.productId()));
+                continue;
+            }
+            updated.put(change.productId(), result);
+            accepted.add(change);
+            results.add(result == null ? 0 : result);
+            lines.append(++nextSequence).append('\t')
+                    .append(timestamp).append('\t')
+                    .append(change.operation()).append('\t')
+                    .append(change.productId()).append('\t')
+                    .append(change.quantity()).append('\n');
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        long size = -1;
+        try {
+            size = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            long position = size;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.error("Could not append {} changes to the order ledger {}", accepted.size(), path, e);
+            truncate(size);
+            UncheckedIOException failure = new UncheckedIOException("Could not record the order", e);
+            accepted.forEach(change -> change.result().completeExceptionally(failure));
+            return;
+        }
+
+        sequence = nextSequence;
+        journalEntries += accepted.size();
+        updated.forEach((productId, quantity) -> {
+            if (quantity == null) {
+                quantities.remove(productId);
+            } else {
+                quantities.put(productId, quantity);
+            }
+        });
+        commits.increment();
+        entries.increment(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).result().complete(results.get(i));
+        }
+
+        if (snapshotDue()) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                // The journal is untouched, the snapshot is tried again after the next commit
+                log.warn("Could not snapshot the order ledger {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private void truncate(long size) {
+        if (size < 0) {
+            return;
+        }
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            log.error("Could not roll back a partial write to the order ledger {}", path, e);
+        }
+    }
+
+    // Null means the product has no item
+    private static Integer apply(Operation operation, Integer current, int quantity) {
+        return switch (operation) {
+            case ADD -> Math.addExact(current == null ? 0 : current, quantity);
+            case SET -> quantity;
+            case DELETE -> null;
+        };
+    }
+
+    private boolean snapshotDue() {
+        return snapshotEvery > 0 && journalEntries >= snapshotEvery;
+    }
+
+    // Runs on the writer thread (or before it starts), so the quantities can't change meanwhile.
+    // Commits wait for the time it takes to write one line per product
+    private void snapshot() throws IOException {
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(SNAPSHOT_HEADER + "\t" + sequence + "\n");
+            for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                out.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+        }
+        try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            snapshotChannel.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename has to be durable before the journal is emptied, or a crash could keep the
+        // truncation and lose both the entries and the snapshot that replaces them
+        snapshotSteps.accept("rename");
+        syncDirectory(snapshotPath.toAbsolutePath().getParent());
+        snapshotSteps.accept("sync-directory");
+        channel.truncate(0);
+        channel.force(true);
+        snapshotSteps.accept("truncate");
+        journalEntries = 0;
+        snapshots.increment();
+        log.info("Snapshot of {} products written to {} at sequence {}", quantities.size(), snapshotPath, sequence);
+    }
+
+    private static void syncDirectory(Path directory) throws IOException {
+        // Windows can't open a directory as a channel, its renames are journaled by NTFS
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(snapshotPath, StandardCharsets.UTF_8);
+        try {
+            String[] header = lines.get(0).split("\t", -1);
+            if (header.length != 2 || !header[0].equals(SNAPSHOT_HEADER)) {
+                throw new IllegalArgumentException("missing header");
+            }
+            sequence = Long.parseLong(header[1]);
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 2) {
+                    throw new IllegalArgumentException("expected 2 fields");
+                }
+                quantities.put(fields[0], Integer.parseInt(fields[1]));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Corrupt order ledger snapshot " + snapshotPath, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        long snapshotSequence = sequence;
+        long valid = 0;
+        long read = 0;
+        int replayed = 0;
+        try (InputStream input = Files.newInputStream(path)) {
+            byte[] buffer = new byte[64 * 1024];
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    line.write(buffer, start, i - start);
+                    valid = read + i + 1;
+                    if (replayLine(line.toString(StandardCharsets.UTF_8), snapshotSequence, valid)) {
+                        replayed++;
+                    }
+                    line.reset();
+                    start = i + 1;
+                }
+                line.write(buffer, start, length - start);
+                read += length;
+            }
+        }
+        if (read > valid) {
+            log.warn("Dropping {} bytes of an incomplete last entry from the order ledger {}", read - valid, path);
+            channel.truncate(valid);
+            channel.force(false);
+        }
+        journalEntries = replayed;
+        log.info("Replayed {} entries from the order ledger {}", replayed, path);
+    }
+
+    // False when the entry is already part of the snapshot
+    private boolean replayLine(String line, long snapshotSequence, long offset) {
+        String[] fields = line.split("\t", -1);
+        try {
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("expected 5 fields");
+            }
+            long entrySequence = Long.parseLong(fields[0]);
+            Operation operation = Operation.valueOf(fields[2]);
+            String productId = fields[3];
+            int quantity = Integer.parseInt(fields[4]);
+            if (entrySequence <= snapshotSequence) {
+                return false;
+            }
+            Integer result = apply(operation, quantities.get(productId), quantity);
+            if (result == null) {
+                quantities.remove(productId);
+            } else {
+                quantities.put(productId, result);
+            }
+            sequence = Math.max(sequence, entrySequence);
+            return true;
+        } catch (RuntimeException e) {
+            // Only the last line can be torn, anything else means the journal was damaged
+            throw new IllegalStateException("Corrupt order ledger entry in " + path + " before byte " + offset, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        closed = true;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Change change;
+        while ((change = queue.poll()) != null) {
+            change.result().completeExceptionally(new IllegalStateException("The order ledger is closed"));
+        }
+        channel.close();
+    }
+
+}
@@ -0,0 +1,64 @@
+package test.abcmotor.msvc_sales.services;
+
+import java.math.BigDecimal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import test.abcmotor.msvc_sales.models.entities.ItemPricing;
+import test.abcmotor.msvc_sales.models.entities.ProductDTO;
+
+// Prices item lines with long arithmetic in cents, so totals are exact and every figure comes
+// out of one pass. Prices are rounded to cents and rates to basis points once, the discount is
+// applied to the line total and IVA to the discounted total, both rounded half up
+@Component
+public class PricingEngine {
+
+    private static final long BASIS_POINTS = 10_000;
+
+    // Used by items built without the configured engine
+    public static final PricingEngine DEFAULT = new PricingEngine(new BigDecimal("0.15"));
+
+    private final long ivaRateBasisPoints;
+
+    public PricingEngine(@Value("${sales.pricing.iva-rate:0.15}") BigDecimal ivaRate) {
+        if (ivaRate.signum() < 0 || ivaRate.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("sales.pricing.iva-rate must be between 0 and 1");
+        }
+        try {
+            this.ivaRateBasisPoints = ivaRate.movePointRight(4).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("sales.pricing.iva-rate supports at most 4 decimals", e);
+        }
+    }
+
+    public ItemPricing price(ProductDTO product, int quantity) {
+        if (product == null) {
+            return ItemPricing.EMPTY;
+        }
+        long unitPrice = toCents(product.getPrice());
+        long originalTotal = Math.multiplyExact(unitPrice, (long) quantity);
+        long discount = applyRate(originalTotal, toBasisPoints(product.getDiscount()));
+        long total = originalTotal - discount;
+        long iva = applyRate(total, ivaRateBasisPoints);
+        return new ItemPricing(product.getId(), quantity, unitPrice, originalTotal, discount, total,
+                ivaRateBasisPoints, iva, total + iva);
+    }
+
+    public long getIvaRateBasisPoints() {
+        return ivaRateBasisPoints;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static long toBasisPoints(double rate) {
+        return Math.round(rate * BASIS_POINTS);
+    }
+
+    private static long applyRate(long cents, long basisPoints) {
+        return Math.floorDiv(Math.multiplyExact(cents, basisPoints) + BASIS_POINTS / 2, BASIS_POINTS);
+    }
+
+}
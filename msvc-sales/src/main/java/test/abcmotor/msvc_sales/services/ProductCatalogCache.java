@@ -0,0 +1,166 @@
+package test.abcmotor.msvc_sales.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import test.abcmotor.msvc_sales.client.ProductFeignClient;
+import test.abcmotor.msvc_sales.models.entities.ProductDTO;
+
+// Local copy of msvc-products with refresh-ahead: an entry older than the ttl is still
+// returned while it is reloaded in the background, and it is kept for the stale window after
+// that, so only cold reads wait for the remote service
+@Component
+public final class ProductCatalogCache {
+
+    private static final String CATALOG = "all";
+
+    private final ProductFeignClient productFeignClient;
+    private final long ttlNanos;
+    private final LoadingCache<String, Cached<ProductDTO>> products;
+    private final LoadingCache<String, Cached<List<ProductDTO>>> catalog;
+    private final Counter staleProductReads;
+    private final Counter staleCatalogReads;
+    private final SingleFlight<String, Cached<ProductDTO>> productLookups;
+    private final Duration lookupTimeout;
+    private final Counter coalescedLookups;
+
+    public ProductCatalogCache(ProductFeignClient productFeignClient, MeterRegistry meterRegistry,
+            @Value("${sales.product-cache.maximum-size:10000}") long maximumSize,
+            @Value("${sales.product-cache.ttl:30s}") Duration ttl,
+            @Value("${sales.product-cache.stale-window:5m}") Duration staleWindow,
+            @Value("${sales.product-cache.lookup-timeout:3s}") Duration lookupTimeout) {
+        this.productFeignClient = productFeignClient;
+        this.ttlNanos = ttl.toNanos();
+        this.lookupTimeout = lookupTimeout;
+
+        // Reloads are remote calls, they run on virtual threads instead of the common pool
+        Executor refresher = Executors.newVirtualThreadPerTaskExecutor();
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(ttl.plus(staleWindow))
+                .executor(refresher)
+                .recordStats()
+                .build(this::loadProduct);
+        this.catalog = Caffeine.newBuilder()
+                .maximumSize(1)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(ttl.plus(staleWindow))
+                .executor(refresher)
+                .recordStats()
+                .build(key -> loadCatalog());
+        this.productLookups = new SingleFlight<>(refresher);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "sales.products");
+        CaffeineCacheMetrics.monitor(meterRegistry, catalog, "sales.catalog");
+        Gauge.builder("sales.product.cache.hit.ratio", products, cache -> cache.stats().hitRate())
+                .tag("cache", "sales.products")
+                .register(meterRegistry);
+        Gauge.builder("sales.product.cache.hit.ratio", catalog, cache -> cache.stats().hitRate())
+                .tag("cache", "sales.catalog")
+                .register(meterRegistry);
+        Gauge.builder("sales.product.cache.catalog.age", this, ProductCatalogCache::catalogAgeSeconds)
+                .description("Seconds since the cached catalog was loaded from msvc-products")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.staleProductReads = Counter.builder("sales.product.cache.stale.reads")
+                .description("Reads answered with an entry older than the ttl")
+                .tag("cache", "sales.products")
+                .register(meterRegistry);
+        this.staleCatalogReads = Counter.builder("sales.product.cache.stale.reads")
+                .description("Reads answered with an entry older than the ttl")
+                .tag("cache", "sales.catalog")
+                .register(meterRegistry);
+        this.coalescedLookups = Counter.builder("sales.product.lookups.coalesced")
+                .description("Cache misses that waited on a lookup already in flight for the same id")
+                .register(meterRegistry);
+        Gauge.builder("sales.product.lookups.in.flight", productLookups, SingleFlight::size)
+                .description("Distinct product ids currently being fetched from msvc-products")
+                .register(meterRegistry);
+    }
+
+    // Empty when the product doesn't exist, other remote errors are thrown on a cold read.
+    // Concurrent misses for the same id share a single call to msvc-products and each of them
+    // waits at most the lookup timeout for it
+    public Optional<ProductDTO> getProduct(String id) {
+        Cached<ProductDTO> cached = products.getIfPresent(id);
+        if (cached == null) {
+            cached = productLookups.get(id, this::fetchProduct, lookupTimeout, coalescedLookups::increment);
+        }
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (cached.isOlderThan(ttlNanos)) {
+            staleProductReads.increment();
+        }
+        return Optional.of(cached.value());
+    }
+
+    public List<ProductDTO> getAllProducts() {
+        Cached<List<ProductDTO>> cached = catalog.get(CATALOG);
+        if (cached.isOlderThan(ttlNanos)) {
+            staleCatalogReads.increment();
+        }
+        return cached.value();
+    }
+
+    private Cached<ProductDTO> loadProduct(String id) {
+        try {
+            return new Cached<>(productFeignClient.getProductById(id));
+        } catch (FeignException.NotFound e) {
+            // Not cached, a product created later is found on the next read
+            return null;
+        }
+    }
+
+    private Cached<ProductDTO> fetchProduct(String id) {
+        Cached<ProductDTO> loaded = loadProduct(id);
+        if (loaded != null) {
+            products.put(id, loaded);
+        }
+        return loaded;
+    }
+
+    private Cached<List<ProductDTO>> loadCatalog() {
+        List<ProductDTO> all = List.copyOf(productFeignClient.getAllProducts());
+        // The full catalog also warms the lookups by id
+        for (ProductDTO product : all) {
+            if (product.getId() != null) {
+                products.put(product.getId(), new Cached<>(product));
+            }
+        }
+        return new Cached<>(all);
+    }
+
+    private double catalogAgeSeconds() {
+        Cached<List<ProductDTO>> cached = catalog.getIfPresent(CATALOG);
+        return cached == null ? 0 : (System.nanoTime() - cached.loadedAt()) / 1e9;
+    }
+
+    private record Cached<T>(T value, long loadedAt) {
+
+        Cached(T value) {
+            this(value, System.nanoTime());
+        }
+
+        boolean isOlderThan(long nanos) {
+            return System.nanoTime() - loadedAt > nanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package test.abcmotor.msvc_sales.services;
+
+import java.time.Duration;
+
+public class ProductLookupTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ProductLookupTimeoutException(Object id, Duration timeout) {
+        super("Product " + id + " was not returned by msvc-products within " + timeout.toMillis() + " ms");
+    }
+
+}
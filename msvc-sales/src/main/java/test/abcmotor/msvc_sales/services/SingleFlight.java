@@ -0,0 +1,67 @@
+package test.abcmotor.msvc_sales.services;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Shares one in-flight load among every concurrent caller asking for the same key. The load
+// runs on the executor so each caller can give up after its own timeout without cancelling it
+// for the others; the key is released as soon as the load finishes, results aren't kept here
+class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    SingleFlight(Executor executor) {
+        this.executor = executor;
+    }
+
+    // onJoin runs when the caller waits on a load that another caller already started
+    V get(K key, Function<K, V> loader, Duration timeout, Runnable onJoin) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = inFlight.putIfAbsent(key, created);
+        if (future == null) {
+            future = created;
+            executor.execute(() -> {
+                try {
+                    created.complete(loader.apply(key));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } else {
+            onJoin.run();
+        }
+
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ProductLookupTimeoutException(key, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductLookupTimeoutException(key, timeout);
+        } catch (ExecutionException e) {
+            // Every waiter sees the loader's own exception, e.g. a FeignException
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+}
@@ -0,0 +1,187 @@
+package test.abcmotor.msvc_sales.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderLedgerTests {
+
+	@TempDir
+	Path dir;
+
+	private SimpleMeterRegistry registry;
+
+	private OrderLedger open(Path path, long snapshotEvery) throws IOException {
+		registry = new SimpleMeterRegistry();
+		return new OrderLedger(registry, path, 512, 10000, true, Duration.ofSeconds(10), snapshotEvery);
+	}
+
+	@Test
+	void replaysCommittedChanges() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		OrderLedger ledger = open(path, 0);
+		assertEquals(2, ledger.add("p1", 2));
+		assertEquals(5, ledger.add("p1", 3));
+		assertEquals(7, ledger.set("p2", 7));
+		ledger.delete("p2");
+		ledger.close();
+
+		OrderLedger reopened = open(path, 0);
+		assertEquals(OptionalInt.of(5), reopened.quantityOf("p1"));
+		assertEquals(OptionalInt.empty(), reopened.quantityOf("p2"));
+		reopened.close();
+	}
+
+	@Test
+	void dropsTornLastEntry() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		OrderLedger ledger = open(path, 0);
+		ledger.add("p1", 4);
+		ledger.close();
+		long committed = Files.size(path);
+		Files.writeString(path, "2\t0\tADD\tp1", StandardOpenOption.APPEND);
+
+		OrderLedger reopened = open(path, 0);
+		assertEquals(OptionalInt.of(4), reopened.quantityOf("p1"));
+		assertEquals(committed, Files.size(path));
+		// The next change continues after the dropped entry without leaving garbage behind
+		assertEquals(5, reopened.add("p1", 1));
+		reopened.close();
+		assertEquals(OptionalInt.of(5), reopenAndRead(path, "p1"));
+	}
+
+	@Test
+	void rejectsCorruptEntryBeforeTheEnd() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		Files.writeString(path, "1\t0\tADD\tp1\t2\n2\t0\tTAKE\tp1\t1\n3\t0\tADD\tp1\t1\n", StandardCharsets.UTF_8);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> open(path, 0));
+		assertTrue(e.getMessage().startsWith("Corrupt order ledger entry"));
+	}
+
+	@Test
+	void groupsConcurrentChangesIntoFewerCommits() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		OrderLedger ledger = open(path, 0);
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 2000; i++) {
+				results.add(executor.submit(() -> ledger.add("p1", 1)));
+			}
+			for (Future<Integer> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(OptionalInt.of(2000), ledger.quantityOf("p1"));
+		assertEquals(2000, registry.counter("sales.ledger.entries").count());
+		assertTrue(registry.counter("sales.ledger.commits").count() < 2000);
+		ledger.close();
+		assertEquals(OptionalInt.of(2000), reopenAndRead(path, "p1"));
+	}
+
+	@Test
+	void snapshotsAndEmptiesTheJournal() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		OrderLedger ledger = open(path, 3);
+		ledger.add("p1", 1);
+		ledger.add("p1", 1);
+		ledger.set("p2", 9);
+		awaitSnapshots(1);
+		assertEquals(0, Files.size(path));
+		ledger.add("p1", 1);
+		ledger.close();
+
+		OrderLedger reopened = open(path, 3);
+		assertEquals(OptionalInt.of(3), reopened.quantityOf("p1"));
+		assertEquals(OptionalInt.of(9), reopened.quantityOf("p2"));
+		reopened.close();
+	}
+
+	@Test
+	void syncsTheSnapshotRenameBeforeEmptyingTheJournal() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		OrderLedger ledger = open(path, 2);
+		List<String> steps = new CopyOnWriteArrayList<>();
+		ledger.snapshotSteps = step -> {
+			try {
+				steps.add(step + ":" + Files.exists(dir.resolve("ledger.log.snapshot")) + ":" + Files.size(path));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+		ledger.add("p1", 1);
+		ledger.add("p1", 1);
+		awaitSnapshots(1);
+		ledger.close();
+
+		assertEquals(3, steps.size());
+		assertTrue(steps.get(0).startsWith("rename:true:") && !steps.get(0).endsWith(":0"));
+		assertTrue(steps.get(1).startsWith("sync-directory:true:") && !steps.get(1).endsWith(":0"));
+		assertEquals("truncate:true:0", steps.get(2));
+	}
+
+	@Test
+	void skipsEntriesAlreadyInTheSnapshot() throws Exception {
+		Path path = dir.resolve("ledger.log");
+		// A crash after the snapshot was written but before the journal was emptied
+		Files.writeString(dir.resolve("ledger.log.snapshot"), "SNAPSHOT\t2\np1\t5\n", StandardCharsets.UTF_8);
+		Files.writeString(path, "1\t0\tADD\tp1\t2\n2\t0\tADD\tp1\t3\n3\t0\tADD\tp1\t1\n", StandardCharsets.UTF_8);
+
+		OrderLedger ledger = open(path, 0);
+		assertEquals(OptionalInt.of(6), ledger.quantityOf("p1"));
+		ledger.close();
+	}
+
+	@Test
+	void rejectsChangesOnceClosed() throws Exception {
+		OrderLedger ledger = open(dir.resolve("ledger.log"), 0);
+		ledger.close();
+
+		assertThrows(IllegalStateException.class, () -> ledger.add("p1", 1));
+		assertFalse(ledger.quantityOf("p1").isPresent());
+	}
+
+	// Snapshots are taken by the writer right after it confirms the change that makes them due
+	private void awaitSnapshots(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (registry.counter("sales.ledger.snapshots").count() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, registry.counter("sales.ledger.snapshots").count());
+	}
+
+	private OptionalInt reopenAndRead(Path path, String productId) throws Exception {
+		OrderLedger ledger = open(path, 0);
+		try {
+			return ledger.quantityOf(productId);
+		} finally {
+			ledger.close();
+		}
+	}
+
+}